@@ -0,0 +1,70 @@
+package Utils;
+
+import job.SyntheticDocx;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WordPlaceholderWithFormat.processParagraph 的吞吐基准：一次操作处理模版里的全部段落。
+ *
+ * <p>processParagraph 会把结果写进类里的静态 newDoc，不清理的话测量期间文档无限增长，
+ * 所以每次调用后把 newDoc 清空。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaceholderBenchmark {
+
+    @Param({"200"})
+    public int paragraphs;
+
+    private XWPFDocument template;
+    private List<XWPFParagraph> templateParagraphs;
+    private XWPFDocument newDoc;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        File f = new SyntheticDocx()
+                .paragraphs(paragraphs)
+                .writePlaceholderTemplate("name", "department", "report_date", "sales_data", "missing");
+        try (FileInputStream fis = new FileInputStream(f)) {
+            template = new XWPFDocument(fis);
+        }
+        templateParagraphs = template.getParagraphs();
+
+        Field field = WordPlaceholderWithFormat.class.getDeclaredField("newDoc");
+        field.setAccessible(true);
+        newDoc = (XWPFDocument) field.get(null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        template.close();
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearOutput() {
+        for (int i = newDoc.getBodyElements().size() - 1; i >= 0; i--) {
+            newDoc.removeBodyElement(i);
+        }
+    }
+
+    @Benchmark
+    public XWPFDocument processParagraph() {
+        for (XWPFParagraph p : templateParagraphs) {
+            WordPlaceholderWithFormat.processParagraph(p);
+        }
+        return newDoc;
+    }
+}
@@ -0,0 +1,32 @@
+package job;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准入口：在 JMH 命令行参数的基础上固定挂上 GC 分析器，
+ * 每个阶段除吞吐外还会输出 gc.alloc.rate（MB/s）和 gc.alloc.rate.norm（B/op）。
+ *
+ * <pre>
+ * cd .. &amp;&amp; mvn install -DskipTests &amp;&amp; cd benchmarks
+ * mvn package
+ * java -jar target/benchmarks.jar                                 # 全部
+ * java -jar target/benchmarks.jar OutlineBenchmark.parse -p paragraphs=20000
+ * java -jar target/benchmarks.jar -rf json -rff result.json       # 存档用于对比回归
+ * </pre>
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options opts = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opts).run();
+    }
+}
@@ -0,0 +1,104 @@
+package job;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大纲流水线各阶段的吞吐基准：抽取 → 解析 → 表格转 Markdown，以及 WordSplitMethod 分段。
+ * 文档由 {@link SyntheticDocx} 按参数生成，每组参数只生成一次。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutlineBenchmark {
+
+    @Param({"500", "5000"})
+    public int paragraphs;
+
+    @Param({"0.2"})
+    public double headingDensity;
+
+    @Param({"10"})
+    public int tableRows;
+
+    @Param({"0.0", "0.2"})
+    public double mergeRatio;
+
+    private String path;
+    private OutlineEngine engine;
+    private List<String> lines;
+    private TemplateNumberIndex templateIndex;
+    private XWPFDocument document;
+    private List<XWPFTable> tables;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File f = new SyntheticDocx()
+                .paragraphs(paragraphs)
+                .headingDensity(headingDensity)
+                .tableSize(tableRows, 6)
+                .mergeRatio(mergeRatio)
+                .writeTemp();
+        path = f.getAbsolutePath();
+        engine = new OutlineEngine(OutlineConfig.defaults());
+        lines = engine.extractWordStreaming(path);
+        // 用报告自身做模版，保证每行都走一遍补编号查找
+        templateIndex = TemplateNumberIndex.of(engine.buildTemplateNumberMap(lines));
+
+        try (FileInputStream fis = new FileInputStream(f)) {
+            document = new XWPFDocument(fis);
+        }
+        tables = document.getTables();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        document.close();
+        new File(path).delete();
+    }
+
+    @Benchmark
+    public List<String> extractWord() throws IOException {
+        return engine.extractWord(path);
+    }
+
+    @Benchmark
+    public List<String> extractWordStreaming() throws IOException {
+        return engine.extractWordStreaming(path);
+    }
+
+    @Benchmark
+    public OutlineParser.Node parse() {
+        return engine.parse(lines, new HashMap<String, String>());
+    }
+
+    @Benchmark
+    public OutlineParser.Node parseWithTemplate() {
+        return engine.parse(lines, templateIndex);
+    }
+
+    @Benchmark
+    public void parseTableToMarkdown(Blackhole bh) {
+        for (XWPFTable table : tables) {
+            bh.consume(OutlineParser.parseTableToMarkdown(table));
+        }
+    }
+
+    @Benchmark
+    public Map<String, List<String>> wordSplitExtractSections() throws IOException {
+        return WordSplitMethod.extractSections(path);
+    }
+}
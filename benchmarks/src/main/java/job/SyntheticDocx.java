@@ -0,0 +1,232 @@
+package job;
+
+import org.apache.poi.xwpf.usermodel.*;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTcPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STMerge;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成报告生成器，固定种子保证每次生成的文档一致。
+ *
+ * <p>可调参数：</p>
+ * <ul>
+ *   <li>paragraphs      —— 段落总数（标题 + 正文，不含表格）；</li>
+ *   <li>headingDensity  —— 段落中标题所占比例，层级按 一、/（一）/1./（1） 逐级展开；</li>
+ *   <li>tableEvery      —— 每隔多少个段落插一张表，0 表示不插表；</li>
+ *   <li>tableRows / tableCols —— 表格尺寸；</li>
+ *   <li>mergeRatio      —— 单元格发起合并（横向 gridSpan 或纵向 vMerge）的概率。</li>
+ * </ul>
+ */
+public final class SyntheticDocx {
+
+    private static final String[] CN = {"一", "二", "三", "四", "五", "六", "七", "八", "九", "十"};
+    private static final String FILLER = "本期授信客户经营情况稳定主营业务收入同比增长现金流充足担保措施有效风险可控";
+
+    private int paragraphs = 1000;
+    private double headingDensity = 0.2;
+    private int tableEvery = 50;
+    private int tableRows = 10;
+    private int tableCols = 6;
+    private double mergeRatio = 0.1;
+    private long seed = 20240501L;
+
+    public SyntheticDocx paragraphs(int paragraphs) {
+        this.paragraphs = paragraphs;
+        return this;
+    }
+
+    public SyntheticDocx headingDensity(double headingDensity) {
+        this.headingDensity = headingDensity;
+        return this;
+    }
+
+    public SyntheticDocx tableEvery(int tableEvery) {
+        this.tableEvery = tableEvery;
+        return this;
+    }
+
+    public SyntheticDocx tableSize(int rows, int cols) {
+        this.tableRows = rows;
+        this.tableCols = cols;
+        return this;
+    }
+
+    public SyntheticDocx mergeRatio(double mergeRatio) {
+        this.mergeRatio = mergeRatio;
+        return this;
+    }
+
+    public SyntheticDocx seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * 生成到临时文件，JVM 退出时删除
+     */
+    public File writeTemp() throws IOException {
+        File f = File.createTempFile("synthetic-", ".docx");
+        f.deleteOnExit();
+        write(f);
+        return f;
+    }
+
+    public void write(File out) throws IOException {
+        Random r = new Random(seed);
+        try (XWPFDocument doc = new XWPFDocument()) {
+            // 封面和目录，extractWord 会跳过这部分
+            text(doc, "授信调查报告");
+            text(doc, "目录 1. 基本情况 2. 财务分析");
+
+            int[] counters = new int[4];
+            int level = 0;
+            for (int i = 0; i < paragraphs; i++) {
+                // 第一段必须是一级标题，报告正文从这里开始
+                if (i == 0 || r.nextDouble() < headingDensity) {
+                    level = i == 0 ? 1 : 1 + r.nextInt(Math.min(level + 1, 4));
+                    counters[level - 1]++;
+                    for (int k = level; k < counters.length; k++) counters[k] = 0;
+                    text(doc, heading(level, counters[level - 1], r));
+                } else {
+                    text(doc, body(r));
+                }
+                if (tableEvery > 0 && (i + 1) % tableEvery == 0) {
+                    table(doc, r);
+                }
+            }
+            try (FileOutputStream fos = new FileOutputStream(out)) {
+                doc.write(fos);
+            }
+        }
+    }
+
+    /**
+     * 生成占位符模版：每段包含 1~2 个 ${key}，其余为普通段落
+     *
+     * @param keys 可用的占位符名
+     */
+    public File writePlaceholderTemplate(String... keys) throws IOException {
+        File f = File.createTempFile("synthetic-template-", ".docx");
+        f.deleteOnExit();
+        Random r = new Random(seed);
+        try (XWPFDocument doc = new XWPFDocument()) {
+            for (int i = 0; i < paragraphs; i++) {
+                XWPFParagraph p = doc.createParagraph();
+                if (r.nextDouble() < 0.5) {
+                    p.createRun().setText(body(r));
+                    continue;
+                }
+                // 占位符故意拆在多个 run 里，贴近 Word 实际保存的样子
+                p.createRun().setText("客户" + i + "：${");
+                p.createRun().setText(keys[r.nextInt(keys.length)]);
+                p.createRun().setText("}，");
+                if (r.nextBoolean()) {
+                    p.createRun().setText("部门 ${" + keys[r.nextInt(keys.length)] + "} 结束");
+                }
+            }
+            try (FileOutputStream fos = new FileOutputStream(f)) {
+                doc.write(fos);
+            }
+        }
+        return f;
+    }
+
+    private static String heading(int level, int n, Random r) {
+        String num;
+        switch (level) {
+            case 1:
+                num = cn(n) + "、";
+                break;
+            case 2:
+                num = "（" + cn(n) + "）";
+                break;
+            case 3:
+                num = n + ".";
+                break;
+            default:
+                num = "（" + n + "）";
+        }
+        return num + FILLER.substring(0, 4 + r.nextInt(8));
+    }
+
+    // 1..99 的中文数字，超过 99 循环使用
+    private static String cn(int n) {
+        n = (n - 1) % 99 + 1;
+        if (n <= 10) return CN[n - 1];
+        int tens = n / 10, ones = n % 10;
+        return (tens == 1 ? "" : CN[tens - 1]) + "十" + (ones == 0 ? "" : CN[ones - 1]);
+    }
+
+    private static String body(Random r) {
+        StringBuilder sb = new StringBuilder(120);
+        int len = 40 + r.nextInt(80);
+        while (sb.length() < len) {
+            int from = r.nextInt(FILLER.length() - 8);
+            sb.append(FILLER, from, from + 8).append('，');
+        }
+        sb.setCharAt(sb.length() - 1, '。');
+        return sb.toString();
+    }
+
+    private static void text(XWPFDocument doc, String s) {
+        doc.createParagraph().createRun().setText(s);
+    }
+
+    /**
+     * 按 mergeRatio 随机发起横向 / 纵向合并，被合并位置遵守 Word 的写法：
+     * 横向合并少一个 tc，纵向合并的延续格带 vMerge（无 val）
+     */
+    private void table(XWPFDocument doc, Random r) {
+        XWPFTable t = doc.createTable(tableRows, 1);
+        int[] vContinue = new int[tableCols];     // 每列还需延续的纵向合并行数
+        for (int row = 0; row < tableRows; row++) {
+            XWPFTableRow tr = t.getRow(row);
+            int col = 0;
+            boolean first = true;
+            while (col < tableCols) {
+                XWPFTableCell cell = first ? tr.getCell(0) : tr.addNewTableCell();
+                first = false;
+
+                if (vContinue[col] > 0) {
+                    cell.getCTTc().addNewTcPr().addNewVMerge();
+                    vContinue[col]--;
+                    col++;
+                    continue;
+                }
+
+                cell.setText("r" + row + "c" + col + " " + r.nextInt(100000));
+                if (r.nextDouble() < mergeRatio) {
+                    CTTcPr pr = cell.getCTTc().addNewTcPr();
+                    boolean canSpan = col + 1 < tableCols && vContinue[col + 1] == 0;
+                    if (canSpan && (r.nextBoolean() || row + 1 >= tableRows)) {
+                        pr.addNewGridSpan().setVal(BigInteger.valueOf(2));
+                        col += 2;
+                        continue;
+                    } else if (row + 1 < tableRows) {
+                        pr.addNewVMerge().setVal(STMerge.RESTART);
+                        vContinue[col] = 1 + r.nextInt(Math.min(2, tableRows - row - 1));
+                    }
+                }
+                col++;
+            }
+        }
+    }
+
+    /**
+     * 命令行生成：SyntheticDocx out.docx [paragraphs] [headingDensity] [tableEvery] [mergeRatio]
+     */
+    public static void main(String[] args) throws IOException {
+        SyntheticDocx gen = new SyntheticDocx();
+        if (args.length > 1) gen.paragraphs(Integer.parseInt(args[1]));
+        if (args.length > 2) gen.headingDensity(Double.parseDouble(args[2]));
+        if (args.length > 3) gen.tableEvery(Integer.parseInt(args[3]));
+        if (args.length > 4) gen.mergeRatio(Double.parseDouble(args[4]));
+        gen.write(new File(args[0]));
+        System.out.println("已生成：" + args[0]);
+    }
+}
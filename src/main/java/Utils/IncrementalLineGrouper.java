@@ -0,0 +1,141 @@
+package Utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 推送式的 {@link LineGrouper}：大模型的回答按 token 流过来，边收边分组，不用等整段回答结束。
+ *
+ * <p>它是一个 {@link Writer}：把收到的字符 / 片段直接 write 进来（或用 {@link #group(Reader, Listener)}
+ * 从 Reader 读），close 表示输入结束。分组规则与 {@link LineGrouper#groupLines} 完全一致，回调时机：</p>
+ * <ul>
+ *   <li>普通行：一行读完（遇到换行）就回调 {@link Listener#onText}，连续的普通行就是一个普通行组；</li>
+ *   <li>表格行：先攒着，遇到普通行或输入结束时整张表一次回调 {@link Listener#onTable}。</li>
+ * </ul>
+ * 内存中只有当前这一行和尚未结束的那张表，与回答总长度无关。回调在调用 write / close 的线程中执行。
+ */
+public class IncrementalLineGrouper extends Writer {
+
+    /**
+     * 分组回调，行文本均已去掉首尾空白、不含空行
+     */
+    public interface Listener {
+        void onText(String line) throws IOException;
+
+        /** 一个表格行组的全部行，列表归调用方所有 */
+        void onTable(List<String> lines) throws IOException;
+    }
+
+    private final Listener listener;
+    private final StringBuilder line = new StringBuilder();
+    private List<String> table = new ArrayList<>();
+    private boolean closed;
+
+    public IncrementalLineGrouper(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 从 Reader 读到结束，边读边回调
+     */
+    public static void group(Reader in, Listener listener) throws IOException {
+        try (IncrementalLineGrouper grouper = new IncrementalLineGrouper(listener)) {
+            char[] buf = new char[8192];
+            for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+                grouper.write(buf, 0, n);
+            }
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        int end = off + len;
+        int from = off;
+        for (int i = off; i < end; i++) {
+            if (cbuf[i] == '\n') {
+                line.append(cbuf, from, i - from);
+                endLine();
+                from = i + 1;
+            }
+        }
+        line.append(cbuf, from, end - from);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        int end = off + len;
+        int from = off;
+        for (int i = str.indexOf('\n', off); i >= 0 && i < end; i = str.indexOf('\n', i + 1)) {
+            line.append(str, from, i);
+            endLine();
+            from = i + 1;
+        }
+        line.append(str, from, end);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        if (c == '\n') {
+            endLine();
+        } else {
+            line.append((char) c);
+        }
+    }
+
+    /**
+     * 没有读完的行无法判断类型，这里什么也不回调
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * 输入结束：处理最后一行（没有换行结尾的也算），交出尚未结束的表格
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        endLine();
+        endTable();
+    }
+
+    // 与 String.trim 相同：去掉首尾 <= ' ' 的字符；空行跳过
+    private void endLine() throws IOException {
+        int start = 0, end = line.length();
+        while (start < end && line.charAt(start) <= ' ') start++;
+        while (end > start && line.charAt(end - 1) <= ' ') end--;
+        if (start < end) {
+            String trimmed = line.substring(start, end);
+            if (trimmed.charAt(0) == '|' && trimmed.charAt(trimmed.length() - 1) == '|') {
+                table.add(trimmed);
+            } else {
+                endTable();
+                listener.onText(trimmed);
+            }
+        }
+        line.setLength(0);
+    }
+
+    private void endTable() throws IOException {
+        if (!table.isEmpty()) {
+            List<String> done = table;
+            table = new ArrayList<>();
+            listener.onTable(done);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("IncrementalLineGrouper 已关闭");
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package Utils;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 按需求值的占位符取值表：每个 key 对应一个取值提供者（可能是汇总计算、调用大模型生成摘要等耗时操作），
+ * 只有模版里真的出现了 ${key}、渲染时第一次取到它才会计算，同一份取值表内每个 key 只算一次。
+ *
+ * <p>它本身就是一个 {@code Map<String, String>}，可以直接交给 {@link WordTemplate#render(Map)}、
+ * 静态流程或 {@link RunPlaceholderScanner}：</p>
+ * <ul>
+ *   <li>{@code get(key)}：首次访问时计算并缓存，之后直接返回；其他线程同时访问同一个 key 会等待同一次计算；</li>
+ *   <li>{@code getOrDefault(key, d)}：取值为 null（没有提供者，或提供者返回 null）时返回 d；</li>
+ *   <li>{@code containsKey} / {@code size} / {@code keySet} 只看注册了哪些 key，不触发计算，
+ *       所以提供者返回 null 的 key 也算在内；遍历 {@code entrySet} / {@code values} 会算出全部取值，其中不含这种 key。
+ *       这里有意偏离 Map 约定（containsKey 为 true 不代表有取值，size 可能大于 entrySet 的大小），
+ *       取值请用 get / getOrDefault，不要先 containsKey 再取；</li>
+ *   <li>{@link #prefetch}：已知模版中出现的 key 时（如 {@link WordTemplate#slotNames()}），
+ *       把这些 key 的提供者一起丢给线程池并发计算，渲染取值时只需等结果。</li>
+ * </ul>
+ *
+ * 取值表按一次渲染创建，提供者本身可以在多次渲染间共享。提供者返回 null 视为没有取值。
+ */
+public final class LazyValues extends AbstractMap<String, String> {
+
+    private final Map<String, Callable<String>> providers;
+    private final ConcurrentHashMap<String, FutureTask<String>> memo = new ConcurrentHashMap<>();
+
+    private LazyValues(Map<String, Callable<String>> providers) {
+        this.providers = providers;
+    }
+
+    /**
+     * 以一组提供者创建新的取值表（提供者表会被拷贝，之后修改原表不影响本次渲染）
+     */
+    public static LazyValues of(Map<String, ? extends Callable<String>> providers) {
+        return new LazyValues(Collections.unmodifiableMap(new LinkedHashMap<String, Callable<String>>(providers)));
+    }
+
+    /**
+     * 固定取值包装成提供者，方便与耗时的提供者放在同一张表里
+     */
+    public static Callable<String> constant(final String value) {
+        return () -> value;
+    }
+
+    /**
+     * 把 keys 中有提供者的那些提交给 executor 并发计算；没有出现在 keys 中的 key 不会被计算。
+     * 线程池忙不过来时，渲染线程取值会直接在本线程算掉尚未开始的任务，不会互相等死。
+     *
+     * @return this，便于链式调用
+     */
+    public LazyValues prefetch(Collection<String> keys, Executor executor) {
+        for (String key : keys) {
+            FutureTask<String> task = task(key);
+            if (task != null && !task.isDone()) {
+                executor.execute(task);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 取值，首次访问时计算
+     *
+     * @throws IllegalStateException 提供者抛出异常（原异常为 cause）
+     */
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        FutureTask<String> task = task((String) key);
+        if (task == null) {
+            return null;
+        }
+        task.run();   // 已经开始或算完时什么也不做
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("占位符 " + key + " 取值失败", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("占位符 " + key + " 取值被中断", e);
+        }
+    }
+
+    /**
+     * 取值为 null 时返回 defaultValue；AbstractMap 的默认实现在 containsKey 为 true 时会原样返回 null
+     */
+    @Override
+    public String getOrDefault(Object key, String defaultValue) {
+        String value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * 是否注册了该 key 的提供者，不触发计算
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return providers.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return providers.size();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return providers.keySet();
+    }
+
+    /**
+     * 已经算过（或正在算）的 key，可用于确认哪些提供者真的被调用了
+     */
+    public Set<String> resolvedKeys() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(memo.keySet()));
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        Map<String, String> all = new LinkedHashMap<>();
+        for (String key : providers.keySet()) {
+            String v = get(key);
+            if (v != null) {
+                all.put(key, v);
+            }
+        }
+        return Collections.unmodifiableMap(all).entrySet();
+    }
+
+    private FutureTask<String> task(String key) {
+        FutureTask<String> task = memo.get(key);
+        if (task != null) {
+            return task;
+        }
+        Callable<String> provider = providers.get(key);
+        if (provider == null) {
+            return null;
+        }
+        FutureTask<String> created = new FutureTask<>(provider);
+        task = memo.putIfAbsent(key, created);
+        return task != null ? task : created;
+    }
+}
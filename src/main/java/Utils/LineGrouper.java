@@ -1,5 +1,6 @@
 package Utils;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class LineGrouper {
@@ -10,31 +11,136 @@ public class LineGrouper {
      * 遇到不同类型的行时，新建一个分组。
      */
     public static List<List<String>> groupLines(String input) {
-        List<List<String>> result = new ArrayList<>();
-        String[] lines = input.split("\\n");
-
-        List<String> currentGroup = null;
-        // true 表示当前分组为表格行组；false 表示普通行组；初始值为 null
-        Boolean currentType = null;
-
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if (trimmed.isEmpty()) {
-                // 如果空行，可以选择跳过
-                continue;
+        return scan(input).toLists();
+    }
+
+    /**
+     * 与 {@link #groupLines} 规则相同，但只扫描一遍输入、记下各行（去掉首尾空白后）的起止偏移和各组的边界，
+     * 不切分字符串；行文本只在调用 {@link Groups#line(int)} 时才创建。
+     * 适合几 MB 的长文本：每行只占两个 int。
+     */
+    public static Groups scan(CharSequence input) {
+        Groups groups = new Groups(input);
+        int n = input.length();
+        int type = -1;   // -1 尚无分组，0 普通行组，1 表格行组
+        for (int pos = 0; pos <= n; ) {
+            int eol = pos;
+            while (eol < n && input.charAt(eol) != '\n') eol++;
+            // 与 String.trim 相同：去掉首尾 <= ' ' 的字符
+            int start = pos, end = eol;
+            while (start < end && input.charAt(start) <= ' ') start++;
+            while (end > start && input.charAt(end - 1) <= ' ') end--;
+            if (start < end) {   // 空行跳过
+                boolean table = input.charAt(start) == '|' && input.charAt(end - 1) == '|';
+                if (type != (table ? 1 : 0)) {
+                    groups.addGroup(table);
+                    type = table ? 1 : 0;
+                }
+                groups.addLine(start, end);
             }
+            pos = eol + 1;
+        }
+        return groups;
+    }
+
+    /**
+     * 分组结果：行与组都用下标表示，第 g 组包含第 firstLine(g) 到 endLine(g) - 1 行
+     */
+    public static final class Groups {
+        private final CharSequence text;
+        private int[] lineStart = new int[16];
+        private int[] lineEnd = new int[16];
+        private int lines;
+        private int[] groupFirst = new int[4];
+        private boolean[] groupTable = new boolean[4];
+        private int groups;
+
+        private Groups(CharSequence text) {
+            this.text = text;
+        }
+
+        private void addGroup(boolean table) {
+            if (groups == groupFirst.length) {
+                groupFirst = Arrays.copyOf(groupFirst, groups * 2);
+                groupTable = Arrays.copyOf(groupTable, groups * 2);
+            }
+            groupFirst[groups] = lines;
+            groupTable[groups] = table;
+            groups++;
+        }
+
+        private void addLine(int start, int end) {
+            if (lines == lineStart.length) {
+                lineStart = Arrays.copyOf(lineStart, lines * 2);
+                lineEnd = Arrays.copyOf(lineEnd, lines * 2);
+            }
+            lineStart[lines] = start;
+            lineEnd[lines] = end;
+            lines++;
+        }
 
-            boolean isTableLine = trimmed.startsWith("|") && trimmed.endsWith("|");
+        public CharSequence text() {
+            return text;
+        }
+
+        /**
+         * 组数
+         */
+        public int size() {
+            return groups;
+        }
+
+        public boolean isTable(int group) {
+            return groupTable[group];
+        }
+
+        public int firstLine(int group) {
+            return groupFirst[group];
+        }
+
+        /**
+         * 该组最后一行的下一行
+         */
+        public int endLine(int group) {
+            return group + 1 < groups ? groupFirst[group + 1] : lines;
+        }
+
+        /**
+         * 非空行总数
+         */
+        public int lineCount() {
+            return lines;
+        }
+
+        public int lineStart(int line) {
+            return lineStart[line];
+        }
+
+        public int lineEnd(int line) {
+            return lineEnd[line];
+        }
+
+        /**
+         * 第 line 行去掉首尾空白后的文本（每次调用新建）
+         */
+        public String line(int line) {
+            return text.subSequence(lineStart[line], lineEnd[line]).toString();
+        }
 
-            // 如果当前还没有分组，或当前行与上一个分组类型不一致，则新开一个分组
-            if (currentGroup == null || currentType == null || isTableLine != currentType) {
-                currentGroup = new ArrayList<>();
-                result.add(currentGroup);
-                currentType = isTableLine;
+        /**
+         * 转成 {@link #groupLines} 的结果形式
+         */
+        public List<List<String>> toLists() {
+            List<List<String>> result = new ArrayList<>(groups);
+            for (int g = 0; g < groups; g++) {
+                List<String> group = new ArrayList<>(endLine(g) - firstLine(g));
+                for (int i = firstLine(g); i < endLine(g); i++) {
+                    group.add(line(i));
+                }
+                result.add(group);
             }
-            currentGroup.add(trimmed);
+            return result;
         }
-        return result;
     }
 
     public static void main(String[] args) {
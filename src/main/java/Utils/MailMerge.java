@@ -0,0 +1,326 @@
+package Utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 批量套打：一个模版 + 一份数据（CSV / JSON），每行数据生成一份 docx。
+ *
+ * <ul>
+ *   <li>模版只编译一次（{@link WordTemplate}），各线程用各自的取值表并发渲染；</li>
+ *   <li>数据行边读边提交，同时在途的行数有上限（threads * 2），数据文件再大也不会整份进内存；</li>
+ *   <li>输出到目录，或直接写进一个 zip；docx 本身已经是压缩过的，zip 条目用 STORED 不再压一遍；</li>
+ *   <li>单行渲染失败只记一次失败，不影响其余行；输出写失败则终止整批。</li>
+ * </ul>
+ *
+ * 结束时给出 {@link Stats}：总耗时、每核吞吐和堆内存峰值。
+ */
+public class MailMerge implements AutoCloseable {
+
+    /**
+     * 输出目标：name 为文件名（不含目录），可能被多个线程同时调用
+     */
+    public interface Sink extends AutoCloseable {
+        void write(String name, byte[] docx) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * 单行失败的回调，row 为数据行序号（从 1 开始）
+     */
+    public interface ErrorHandler {
+        void onError(long row, Throwable error);
+    }
+
+    /**
+     * 一批的统计结果
+     */
+    public static class Stats {
+        public final long rows;
+        public final long failed;
+        public final long elapsedMillis;
+        public final int threads;
+        public final long peakHeapBytes;
+
+        Stats(long rows, long failed, long elapsedMillis, int threads, long peakHeapBytes) {
+            this.rows = rows;
+            this.failed = failed;
+            this.elapsedMillis = elapsedMillis;
+            this.threads = threads;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        public double docsPerSecond() {
+            return elapsedMillis == 0 ? 0 : (rows - failed) * 1000.0 / elapsedMillis;
+        }
+
+        /**
+         * 每核吞吐：线程数多于 CPU 核数时按核数算
+         */
+        public double docsPerSecondPerCore() {
+            return docsPerSecond() / Math.min(threads, Runtime.getRuntime().availableProcessors());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("共 %d 行，失败 %d 行，耗时 %d ms，%.1f 份/秒（%d 线程 / %d 核，每核 %.1f 份/秒），堆峰值 %.1f MB",
+                    rows, failed, elapsedMillis, docsPerSecond(), threads,
+                    Runtime.getRuntime().availableProcessors(), docsPerSecondPerCore(),
+                    peakHeapBytes / 1024.0 / 1024.0);
+        }
+    }
+
+    private final WordTemplate template;
+    private final int threads;
+    private final int maxInFlight;
+    private final ExecutorService pool;
+
+    public MailMerge(WordTemplate template, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads 必须大于 0：" + threads);
+        }
+        this.template = template;
+        this.threads = threads;
+        this.maxInFlight = threads * 2;
+        this.pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger seq = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "mail-merge-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * 逐行渲染并写出
+     *
+     * @param rows       数据来源，由调用方关闭
+     * @param nameColumn 用作文件名的列，为 null 或该行没有此列时只用行号；文件名总以行号开头，不会重名
+     * @param sink       输出目标，由调用方关闭
+     * @param errors     单行失败时回调（在当前线程执行），可为 null
+     * @throws IOException          数据读取失败或输出写失败
+     * @throws InterruptedException 等待结果时被中断
+     */
+    public Stats merge(MergeRows rows, String nameColumn, final Sink sink, ErrorHandler errors)
+            throws IOException, InterruptedException {
+        resetHeapPeaks();
+        long start = System.nanoTime();
+        CompletionService<Long> cs = new ExecutorCompletionService<>(pool);
+        Map<Future<Long>, Long> pending = new HashMap<>();   // 在途任务 → 行号
+        long submitted = 0;
+        long failed = 0;
+        boolean more = true;
+        try {
+            while (more || !pending.isEmpty()) {
+                // 先把在途任务补满，再取一个完成的结果
+                while (more && pending.size() < maxInFlight) {
+                    final Map<String, String> values = rows.next();
+                    if (values == null) {
+                        more = false;
+                        break;
+                    }
+                    final long rowNo = ++submitted;
+                    final String name = fileName(rowNo, nameColumn == null ? null : values.get(nameColumn));
+                    pending.put(cs.submit(() -> {
+                        byte[] docx = renderOne(values);
+                        try {
+                            sink.write(name, docx);
+                        } catch (IOException e) {
+                            throw new OutputFailure(e);
+                        }
+                        return rowNo;
+                    }), rowNo);
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+                Future<Long> done = cs.take();
+                long rowNo = pending.remove(done);
+                try {
+                    done.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof OutputFailure) {
+                        throw ((OutputFailure) cause).getCause();
+                    }
+                    failed++;
+                    if (errors != null) {
+                        errors.onError(rowNo, cause);
+                    }
+                }
+            }
+        } finally {
+            // 被中断或输出失败时，剩下的任务直接取消
+            for (Future<Long> f : pending.keySet()) {
+                f.cancel(true);
+            }
+        }
+        return new Stats(submitted, failed, (System.nanoTime() - start) / 1_000_000, threads, peakHeap());
+    }
+
+    private byte[] renderOne(Map<String, String> values) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(64 * 1024);
+        template.render(values, bos);
+        return bos.toByteArray();
+    }
+
+    // 行号补齐到 6 位，后接可选的名字列（去掉文件名里不能用的字符）
+    static String fileName(long rowNo, String name) {
+        StringBuilder sb = new StringBuilder(32);
+        String n = Long.toString(rowNo);
+        for (int i = n.length(); i < 6; i++) sb.append('0');
+        sb.append(n);
+        if (name != null && !name.trim().isEmpty()) {
+            sb.append('-');
+            String s = name.trim();
+            for (int i = 0; i < s.length() && i < 80; i++) {
+                char c = s.charAt(i);
+                sb.append(c < 0x20 || "\\/:*?\"<>|".indexOf(c) >= 0 ? '_' : c);
+            }
+        }
+        return sb.append(".docx").toString();
+    }
+
+    /**
+     * 输出写失败：与单行渲染失败不同，需要终止整批
+     */
+    private static class OutputFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        OutputFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    // ────── 堆峰值：各堆内存池的峰值之和（上界，各池峰值不一定同时出现） ──────
+
+    private static void resetHeapPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long sum = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                sum += pool.getPeakUsage().getUsed();
+            }
+        }
+        return sum;
+    }
+
+    // ────── 输出目标 ──────
+
+    /**
+     * 写到目录，每份一个文件；各线程直接写，互不等待
+     */
+    public static Sink toDirectory(final Path dir) throws IOException {
+        Files.createDirectories(dir);
+        return new Sink() {
+            @Override
+            public void write(String name, byte[] docx) throws IOException {
+                Files.write(dir.resolve(name), docx);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * 写进一个 zip；条目不再压缩，CRC 在加锁前算好，锁内只有顺序写
+     */
+    public static Sink toZip(OutputStream out) {
+        final ZipOutputStream zip = new ZipOutputStream(out);
+        return new Sink() {
+            @Override
+            public void write(String name, byte[] docx) throws IOException {
+                CRC32 crc = new CRC32();
+                crc.update(docx, 0, docx.length);
+                ZipEntry entry = new ZipEntry(name);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(docx.length);
+                entry.setCompressedSize(docx.length);
+                entry.setCrc(crc.getValue());
+                synchronized (zip) {
+                    zip.putNextEntry(entry);
+                    zip.write(docx);
+                    zip.closeEntry();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                zip.close();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ────── 示例 Main：java Utils.MailMerge 模版.docx 数据.csv|.json|.jsonl 输出目录|输出.zip [线程数] [文件名列] ──────
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("用法：MailMerge 模版.docx 数据.csv|.json|.jsonl 输出目录|输出.zip [线程数] [文件名列]");
+            return;
+        }
+        Path output = Paths.get(args[2]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        String nameColumn = args.length > 4 ? args[4] : null;
+
+        WordTemplate template = WordTemplate.compile(args[0]);
+        System.out.println("模版占位符：" + template.slotNames());
+
+        Stats stats;
+        try (MergeRows rows = MergeRows.open(Paths.get(args[1]));
+             Sink sink = output.toString().toLowerCase().endsWith(".zip")
+                     ? toZip(Files.newOutputStream(output)) : toDirectory(output);
+             MailMerge merge = new MailMerge(template, threads)) {
+            stats = merge.merge(rows, nameColumn, sink, (row, error) -> System.out.printf("[FAIL] 第 %d 行：%s%n", row, error));
+        }
+        System.out.println(stats + "，输出：" + output);
+    }
+}
@@ -0,0 +1,193 @@
+package Utils;
+
+import org.apache.poi.xwpf.usermodel.IBody;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.apache.xmlbeans.XmlCursor;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.*;
+
+import javax.xml.namespace.QName;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Markdown 表格：逐字符切分行与单元格，直接在底层 XML 上成批建表。
+ *
+ * <p>切分规则与原来的 replaceAll("^\\|") / replaceAll("\\|$") / split("\\|") 一致：
+ * 去掉行首、行尾各一个竖线，末尾的空单元格丢弃，单元格文本去首尾空白；
+ * 另外支持转义竖线 {@code \|}，它是单元格内的普通字符，不再当作分隔符。</p>
+ *
+ * <p>生成的表格与 {@link WordPlaceholderWithFormat#fillMarkdownTable} 逐格填出来的 XML 相同
+ * （自动列宽、整体居中、单元格水平垂直居中、行高自动），但不经过 XWPF 的逐格 API：
+ * 按行的形状建一个带格式的行样板，之后每行只是整行复制样板、再写入各格文字。</p>
+ *
+ * <p>XWPFTable(CTTbl) 构造时按下标逐行定位（XmlBeans 的 getTrList 每次都从第一行数起），
+ * 几千行的表光是包装就是平方级开销；这里的行对象随建随登记，整张表是线性的。</p>
+ */
+public final class MarkdownTable {
+
+    private static final QName XML_SPACE = new QName("http://www.w3.org/XML/1998/namespace", "space");
+
+    private MarkdownTable() {
+    }
+
+    /**
+     * 切分一行，返回去掉首尾空白的单元格文本
+     */
+    public static String[] parseRow(String line) {
+        return parseRow(line, 0, line.length());
+    }
+
+    /**
+     * 切分 line 中 [from, to) 这一段，规则同 {@link #parseRow(String)}
+     */
+    public static String[] parseRow(CharSequence line, int from, int to) {
+        int start = from, end = to;
+        if (start < end && line.charAt(start) == '|') start++;
+        if (end > start && line.charAt(end - 1) == '|' && line.charAt(end - 2) != '\\') end--;
+
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        int lastNonEmpty = -1;       // 最后一个原始内容非空的单元格，之后的空单元格丢弃（同 split）
+        boolean split = false;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < end && line.charAt(i + 1) == '|') {
+                cell.append('|');
+                i++;
+            } else if (c == '|') {
+                split = true;
+                if (cell.length() > 0) lastNonEmpty = cells.size();
+                cells.add(trim(cell));
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        if (cell.length() > 0) lastNonEmpty = cells.size();
+        cells.add(trim(cell));
+        // 没有分隔符时 split 原样返回整行（哪怕是空串）
+        int count = split ? lastNonEmpty + 1 : 1;
+        return cells.subList(0, count).toArray(new String[count]);
+    }
+
+    /**
+     * 在文档末尾插入表格：第一行为表头，第二行（分隔线）跳过，其余为数据行。
+     * 不足两行时与原实现一样只插入一张默认的空表。
+     */
+    public static XWPFTable create(XWPFDocument doc, final List<String> tableLines) {
+        return create(doc, tableLines.size(), i -> parseRow(tableLines.get(i)));
+    }
+
+    /**
+     * 用 {@link LineGrouper#scan} 结果中的第 group 组建表，直接按偏移切单元格，不生成整行字符串
+     */
+    public static XWPFTable create(XWPFDocument doc, final LineGrouper.Groups groups, int group) {
+        final int first = groups.firstLine(group);
+        final CharSequence text = groups.text();
+        return create(doc, groups.endLine(group) - first,
+                i -> parseRow(text, groups.lineStart(first + i), groups.lineEnd(first + i)));
+    }
+
+    // row.apply(i) 给出第 i 行切好的单元格
+    private static XWPFTable create(XWPFDocument doc, int lineCount, IntFunction<String[]> row) {
+        if (lineCount < 2) {
+            return doc.createTable();
+        }
+        CTTbl ct = doc.getDocument().getBody().addNewTbl();
+        tableProperties(ct.addNewTblPr());
+        BulkTable table = new BulkTable(ct, doc);   // 此时还没有行，构造不遍历
+
+        String[] header = row.apply(0);
+        int width = Math.max(1, header.length);   // 新建行的单元格数与首行相同
+        table.appendRow(ct, header, width);
+        for (int i = 2; i < lineCount; i++) {
+            String[] cols = row.apply(i);
+            table.appendRow(ct, cols, Math.max(width, cols.length));
+        }
+
+        doc.insertTable(doc.getBodyElements().size(), table);
+        return table;
+    }
+
+    // 与 XWPFDocument.createTable() 的默认属性 + fillMarkdownTable 的设置相同
+    private static void tableProperties(CTTblPr pr) {
+        CTTblWidth w = pr.addNewTblW();
+        w.setW(BigInteger.ZERO);
+        w.setType(STTblWidth.AUTO);
+        CTTblBorders borders = pr.addNewTblBorders();
+        borders.addNewBottom().setVal(STBorder.SINGLE);
+        borders.addNewInsideH().setVal(STBorder.SINGLE);
+        borders.addNewInsideV().setVal(STBorder.SINGLE);
+        borders.addNewLeft().setVal(STBorder.SINGLE);
+        borders.addNewRight().setVal(STBorder.SINGLE);
+        borders.addNewTop().setVal(STBorder.SINGLE);
+        pr.addNewTblLayout().setType(STTblLayoutType.AUTOFIT);
+        pr.addNewJc().setVal(STJcTable.CENTER);
+    }
+
+    /**
+     * 边建行边登记行对象的表格
+     */
+    private static final class BulkTable extends XWPFTable {
+        private CTRow rowTemplate;      // 最近一次用到的行样板，行形状（有字格数、总格数）不变时复用
+        private int templateCells = -1;
+        private int templateWidth = -1;
+
+        BulkTable(CTTbl ct, IBody body) {
+            super(ct, body, false);
+        }
+
+        void appendRow(CTTbl ct, String[] cells, int width) {
+            if (cells.length != templateCells || width != templateWidth) {
+                rowTemplate = rowTemplate(cells.length, width);
+                templateCells = cells.length;
+                templateWidth = width;
+            }
+            CTRow tr = ct.addNewTr();
+            tr.set(rowTemplate);
+            CTTc[] tcs = tr.getTcArray();
+            for (int i = 0; i < cells.length; i++) {
+                String text = cells[i];
+                CTText t = tcs[i].getPArray(0).getRArray(0).getTArray(0);
+                t.setStringValue(text);
+                // 与 XWPFRun.setText 相同：首尾是空白字符时保留空格
+                if (!text.isEmpty() && (Character.isWhitespace(text.charAt(0))
+                        || Character.isWhitespace(text.charAt(text.length() - 1)))) {
+                    try (XmlCursor c = t.newCursor()) {
+                        c.toNextToken();
+                        c.insertAttributeWithValue(XML_SPACE, "preserve");
+                    }
+                }
+            }
+            tableRows.add(new XWPFTableRow(tr, this));
+        }
+
+        // 行样板：行高自动；前 cells 格垂直居中 + 段落水平居中 + 一个空 run，其余补空段落
+        private static CTRow rowTemplate(int cells, int width) {
+            CTRow tr = CTRow.Factory.newInstance();
+            tr.addNewTrPr().addNewTrHeight().setHRule(STHeightRule.AUTO);
+            for (int i = 0; i < cells; i++) {
+                CTTc tc = tr.addNewTc();
+                tc.addNewTcPr().addNewVAlign().setVal(STVerticalJc.CENTER);
+                CTP p = tc.addNewP();
+                p.addNewPPr().addNewJc().setVal(STJc.CENTER);
+                p.addNewR().addNewT();
+            }
+            for (int i = cells; i < width; i++) {
+                tr.addNewTc().addNewP();
+            }
+            return tr;
+        }
+    }
+
+    private static String trim(StringBuilder sb) {
+        int start = 0, end = sb.length();
+        while (start < end && sb.charAt(start) <= ' ') start++;
+        while (end > start && sb.charAt(end - 1) <= ' ') end--;
+        return sb.substring(start, end);
+    }
+}
@@ -0,0 +1,308 @@
+package Utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量套打的数据行来源：逐行读出「列名 → 取值」，整个文件不会读进内存。
+ *
+ * <ul>
+ *   <li>CSV：首行为列名，逗号分隔，双引号转义（"" 表示一个引号），引号内可换行；</li>
+ *   <li>JSON：对象数组 [{...},{...}]，或每行一个对象的 JSON Lines；取值只支持字符串、数字、
+ *       true/false/null，null 视为缺省。</li>
+ * </ul>
+ */
+public abstract class MergeRows implements Closeable {
+
+    protected final Reader in;
+    private int peeked = -2;   // -2 = 没有预读
+
+    protected MergeRows(Reader in) {
+        this.in = in instanceof BufferedReader ? in : new BufferedReader(in, 64 * 1024);
+    }
+
+    /**
+     * 下一行数据，读完返回 null
+     */
+    public abstract Map<String, String> next() throws IOException;
+
+    /**
+     * 当前所在的行号（从 1 开始），用于报错
+     */
+    public abstract long line();
+
+    public static MergeRows csv(Reader in) {
+        return new Csv(in);
+    }
+
+    public static MergeRows json(Reader in) {
+        return new Json(in);
+    }
+
+    /**
+     * 按扩展名打开：.csv 为 CSV，其余（.json / .jsonl）按 JSON 读，UTF-8 编码
+     */
+    public static MergeRows open(Path file) throws IOException {
+        Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        return file.getFileName().toString().toLowerCase().endsWith(".csv") ? csv(r) : json(r);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    protected int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    protected int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = in.read();
+        }
+        return peeked;
+    }
+
+    // ────── CSV ──────
+
+    private static final class Csv extends MergeRows {
+        private String[] header;
+        private long line = 1;
+        private final StringBuilder field = new StringBuilder();
+        private final List<String> fields = new ArrayList<>();
+
+        Csv(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            if (header == null) {
+                if (peek() == '\uFEFF') read();   // Excel 另存的 UTF-8 带 BOM
+                if (!readRecord()) {
+                    return null;
+                }
+                header = fields.toArray(new String[0]);
+                for (int i = 0; i < header.length; i++) {
+                    header[i] = header[i].trim();
+                }
+            }
+            while (readRecord()) {
+                if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                    continue;   // 空行
+                }
+                Map<String, String> row = new HashMap<>(header.length * 2);
+                for (int i = 0; i < header.length && i < fields.size(); i++) {
+                    row.put(header[i], fields.get(i));
+                }
+                return row;
+            }
+            return null;
+        }
+
+        @Override
+        public long line() {
+            return line;
+        }
+
+        // 读一条记录到 fields，文件结束且没读到任何字符时返回 false
+        private boolean readRecord() throws IOException {
+            fields.clear();
+            field.setLength(0);
+            int c = read();
+            if (c < 0) {
+                return false;
+            }
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c < 0) {
+                        throw new IOException("第 " + line + " 行：引号未闭合");
+                    }
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            read();
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        if (c == '\n') line++;
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c < 0) {
+                    if (c == '\r' && peek() == '\n') read();
+                    if (c >= 0) line++;
+                    fields.add(field.toString());
+                    return true;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+    }
+
+    // ────── JSON ──────
+
+    private static final class Json extends MergeRows {
+        private long line = 1;
+        private boolean inArray;
+        private boolean started;
+        private final StringBuilder sb = new StringBuilder();
+
+        Json(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            int c = skipSpace();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') c = skipSpace();
+                if (c == '[') {
+                    inArray = true;
+                    c = skipSpace();
+                    if (c == ']') return null;
+                }
+            } else if (inArray) {
+                if (c == ']') return null;
+                if (c != ',') throw error("应为 ',' 或 ']'");
+                c = skipSpace();
+            }
+            if (c < 0) {
+                if (inArray) throw error("数组未闭合");
+                return null;
+            }
+            if (c != '{') throw error("应为 '{'");
+            return readObject();
+        }
+
+        @Override
+        public long line() {
+            return line;
+        }
+
+        private Map<String, String> readObject() throws IOException {
+            Map<String, String> row = new LinkedHashMap<>();
+            int c = skipSpace();
+            if (c == '}') return row;
+            while (true) {
+                if (c != '"') throw error("应为字段名");
+                String key = readString();
+                if (skipSpace() != ':') throw error("应为 ':'");
+                String value = readValue(skipSpace());
+                if (value != null) {
+                    row.put(key, value);
+                }
+                c = skipSpace();
+                if (c == '}') return row;
+                if (c != ',') throw error("应为 ',' 或 '}'");
+                c = skipSpace();
+            }
+        }
+
+        private String readValue(int c) throws IOException {
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                throw error("不支持嵌套的对象或数组");
+            }
+            if (c < 0 || c == ',' || c == '}') {
+                throw error("缺少取值");
+            }
+            // 数字、true / false / null：读到分隔符为止
+            sb.setLength(0);
+            sb.append((char) c);
+            for (int p = peek(); p >= 0 && p != ',' && p != '}' && p != ']' && !Character.isWhitespace(p); p = peek()) {
+                sb.append((char) read());
+            }
+            String token = sb.toString();
+            return "null".equals(token) ? null : token;
+        }
+
+        // 开头的引号已读
+        private String readString() throws IOException {
+            sb.setLength(0);
+            while (true) {
+                int c = read();
+                if (c < 0) throw error("字符串未闭合");
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    if (c == '\n') line++;
+                    sb.append((char) c);
+                    continue;
+                }
+                c = read();
+                switch (c) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        int v = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int d = Character.digit(read(), 16);
+                            if (d < 0) throw error("\\u 转义格式错误");
+                            v = v * 16 + d;
+                        }
+                        sb.append((char) v);
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append((char) c);
+                        break;
+                    default:
+                        throw error("非法转义");
+                }
+            }
+        }
+
+        private int skipSpace() throws IOException {
+            int c = read();
+            while (c >= 0 && Character.isWhitespace(c)) {
+                if (c == '\n') line++;
+                c = read();
+            }
+            return c;
+        }
+
+        private IOException error(String msg) {
+            return new IOException("JSON 第 " + line + " 行：" + msg);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package Utils;
+
+import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.DrawObject;
+import org.apache.pdfbox.contentstream.operator.state.Concatenate;
+import org.apache.pdfbox.contentstream.operator.state.Restore;
+import org.apache.pdfbox.contentstream.operator.state.Save;
+import org.apache.pdfbox.contentstream.operator.state.SetMatrix;
+import org.apache.pdfbox.contentstream.operator.text.BeginText;
+import org.apache.pdfbox.contentstream.operator.text.EndText;
+import org.apache.pdfbox.contentstream.operator.text.MoveText;
+import org.apache.pdfbox.contentstream.operator.text.MoveTextSetLeading;
+import org.apache.pdfbox.contentstream.operator.text.NextLine;
+import org.apache.pdfbox.contentstream.operator.text.SetCharSpacing;
+import org.apache.pdfbox.contentstream.operator.text.SetFontAndSize;
+import org.apache.pdfbox.contentstream.operator.text.SetTextHorizontalScaling;
+import org.apache.pdfbox.contentstream.operator.text.SetTextLeading;
+import org.apache.pdfbox.contentstream.operator.text.SetTextRise;
+import org.apache.pdfbox.contentstream.operator.text.SetWordSpacing;
+import org.apache.pdfbox.contentstream.operator.text.ShowText;
+import org.apache.pdfbox.contentstream.operator.text.ShowTextAdjusted;
+import org.apache.pdfbox.contentstream.operator.text.ShowTextLine;
+import org.apache.pdfbox.contentstream.operator.text.ShowTextLineAndSpace;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 从文档本身找出页眉、页脚的高度，供 {@link PdfHeaderFooterRemover} 代替固定的 125 / 120pt 使用。
+ *
+ * <p>做法：在全文中均匀抽取至多 {@link #DEFAULT_SAMPLE_PAGES} 页，只收集文字的位置（不做版面分析），按基线合成行；
+ * 页面上下各 {@link #EDGE_ZONE} 范围内，文字（数字归一化后）与离页边距离都相同、且出现在足够多抽样页上的行
+ * 视为页眉 / 页脚；每页只认从页边起连续的这种行，遇到第一行不重复的文字即是正文。
+ * 带的边界取在页眉页脚与最近一行正文之间的中线，页眉下的分隔线等也会落在带内。</p>
+ *
+ * <ul>
+ *   <li>抽样页数固定，检测开销与文档总页数无关，长文档上只占完整处理的很小一部分；</li>
+ *   <li>没有重复行的一侧高度为 0（不处理）；有文字的抽样页不足 3 页（扫描件、一两页的短文档）时退回 {@link PdfHeaderFooterRemover.Bands#DEFAULT}。</li>
+ * </ul>
+ */
+public class PdfBandDetector {
+
+    /** 默认抽样页数 */
+    public static final int DEFAULT_SAMPLE_PAGES = 24;
+
+    // 只在页面上下各 30% 的范围内找页眉页脚
+    private static final float EDGE_ZONE = 0.3f;
+    // 出现在至少 40% 的抽样页上算重复；奇偶页页眉不同的文档每种各占一半，所以不取「多数」
+    private static final float MIN_SHARE = 0.4f;
+    // 至少出现在 3 页上，抽样页很少时避免两页碰巧相同
+    private static final int MIN_PAGES = 3;
+    // 同一页眉在各页的位置允许的偏差（pt）
+    private static final float POSITION_TOLERANCE = 3;
+    // 带内没有正文可参照时，在页眉页脚外再留出的边距（pt）
+    private static final float MARGIN = 6;
+
+    private PdfBandDetector() {
+    }
+
+    public static PdfHeaderFooterRemover.Bands detect(PDDocument document) throws IOException {
+        return detect(document, DEFAULT_SAMPLE_PAGES);
+    }
+
+    /**
+     * @param samplePages 最多抽取的页数，大于 0
+     */
+    public static PdfHeaderFooterRemover.Bands detect(PDDocument document, int samplePages) throws IOException {
+        if (samplePages <= 0) {
+            throw new IllegalArgumentException("samplePages 必须大于 0：" + samplePages);
+        }
+        int total = document.getNumberOfPages();
+        int n = Math.min(total, samplePages);
+        List<List<Line>> sampled = new ArrayList<>(n);
+        GlyphCollector collector = new GlyphCollector();
+        for (int i = 0; i < n; i++) {
+            // 均匀取样，每段取中间那页，避开封面、封底
+            PDPage page = document.getPage((int) ((i + 0.5) * total / n));
+            List<Line> lines = collector.lines(page);
+            if (!lines.isEmpty()) {
+                sampled.add(lines);
+            }
+        }
+        // 有文字的抽样页不足 MIN_PAGES 时任何行都不可能算重复，与没有文字一样退回固定值
+        if (sampled.size() < MIN_PAGES) {
+            return PdfHeaderFooterRemover.Bands.DEFAULT;
+        }
+        return new PdfHeaderFooterRemover.Bands(band(sampled, false), band(sampled, true));
+    }
+
+    // 一侧的带高：top 为 true 时是页眉（距页面上边），否则是页脚（距页面下边）
+    private static float band(List<List<Line>> sampled, boolean top) {
+        // 统计每种（文字，离页边距离）出现在几页上
+        Map<String, Set<Integer>> pagesByKey = new HashMap<>();
+        for (int p = 0; p < sampled.size(); p++) {
+            for (Line line : sampled.get(p)) {
+                if (line.inZone(top)) {
+                    pagesByKey.computeIfAbsent(line.key(top), k -> new HashSet<>()).add(p);
+                }
+            }
+        }
+        int required = Math.max(MIN_PAGES, (int) Math.ceil(sampled.size() * MIN_SHARE));
+
+        // 每页从页边往里走，连续的重复行是页眉页脚，遇到第一行不重复的就是正文
+        float depth = 0;
+        List<Float> bodyStarts = new ArrayList<>();
+        for (List<Line> lines : sampled) {
+            for (int i = 0; i < lines.size(); i++) {
+                Line line = lines.get(top ? i : lines.size() - 1 - i);
+                if (!line.inZone(top)) {
+                    break;
+                }
+                if (pagesByKey.get(line.key(top)).size() < required) {
+                    bodyStarts.add(line.near(top));
+                    break;
+                }
+                depth = Math.max(depth, line.far(top));
+            }
+        }
+        if (depth == 0) {
+            return 0;
+        }
+        // 带的边界取页眉页脚与最近正文之间的中线；个别页（如章节首页）的正文可能比别页的页眉还靠外，不作参照
+        float body = Float.MAX_VALUE;
+        for (float near : bodyStarts) {
+            if (near > depth) {
+                body = Math.min(body, near);
+            }
+        }
+        return body == Float.MAX_VALUE ? depth + MARGIN : (depth + body) / 2;
+    }
+
+    /**
+     * 一行文字：基线相同的字形，位置以到页面下边、上边的距离表示
+     */
+    private static final class Line {
+        final StringBuilder text = new StringBuilder();
+        final float pageHeight;
+        final float baseline;   // 到页面下边
+        float ascent;
+        float descent;
+
+        Line(float pageHeight, float baseline) {
+            this.pageHeight = pageHeight;
+            this.baseline = baseline;
+        }
+
+        boolean inZone(boolean top) {
+            return top ? baseline >= pageHeight * (1 - EDGE_ZONE) : baseline <= pageHeight * EDGE_ZONE;
+        }
+
+        // 离页边较远的一侧到页边的距离
+        float far(boolean top) {
+            return top ? pageHeight - (baseline - descent) : baseline + ascent;
+        }
+
+        // 离页边较近的一侧到页边的距离
+        float near(boolean top) {
+            return top ? pageHeight - (baseline + ascent) : baseline - descent;
+        }
+
+        // 页码等数字归一化，位置按容差取整
+        String key(boolean top) {
+            float edge = top ? pageHeight - baseline : baseline;
+            return text.toString().replaceAll("\\s+", "").replaceAll("\\d+", "#")
+                    + '@' + Math.round(edge / POSITION_TOLERANCE);
+        }
+    }
+
+    /**
+     * 只处理文字和状态操作的最小内容流引擎，表单 XObject 里的文字也会收集到
+     */
+    private static final class GlyphCollector extends PDFStreamEngine {
+        private TreeMap<Integer, Line> lines;
+        private PDRectangle mediaBox;
+
+        GlyphCollector() {
+            addOperator(new BeginText());
+            addOperator(new EndText());
+            addOperator(new SetFontAndSize());
+            addOperator(new ShowText());
+            addOperator(new ShowTextAdjusted());
+            addOperator(new ShowTextLine());
+            addOperator(new ShowTextLineAndSpace());
+            addOperator(new MoveText());
+            addOperator(new MoveTextSetLeading());
+            addOperator(new NextLine());
+            addOperator(new SetMatrix());
+            addOperator(new SetTextLeading());
+            addOperator(new SetCharSpacing());
+            addOperator(new SetWordSpacing());
+            addOperator(new SetTextHorizontalScaling());
+            addOperator(new SetTextRise());
+            addOperator(new Save());
+            addOperator(new Restore());
+            addOperator(new Concatenate());
+            addOperator(new DrawObject());
+        }
+
+        // 自上而下的各行
+        List<Line> lines(PDPage page) throws IOException {
+            lines = new TreeMap<>();
+            mediaBox = page.getMediaBox();
+            processPage(page);
+            List<Line> result = new ArrayList<>(lines.descendingMap().values());
+            lines = null;
+            return result;
+        }
+
+        @Override
+        protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement)
+                throws IOException {
+            String unicode = font.toUnicode(code);
+            if (unicode == null || unicode.trim().isEmpty()) {
+                return;
+            }
+            float y = textRenderingMatrix.getTranslateY() - mediaBox.getLowerLeftY();
+            float size = textRenderingMatrix.getScalingFactorY();
+            Line line = lines.get(Math.round(y));
+            if (line == null) {
+                line = new Line(mediaBox.getHeight(), y);
+                lines.put(Math.round(y), line);
+            }
+            line.text.append(unicode);
+            line.ascent = Math.max(line.ascent, size * 0.8f);
+            line.descent = Math.max(line.descent, size * 0.2f);
+        }
+    }
+}
@@ -1,86 +1,645 @@
 package Utils;
 
-import org.apache.pdfbox.contentstream.PDContentStream;
-import org.apache.pdfbox.pdmodel.*;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdfparser.PDFStreamParser;
 import org.apache.pdfbox.contentstream.operator.Operator;
 import org.apache.pdfbox.cos.COSName;
-import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.pdmodel.graphics.PDXObject;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
-import java.util.List;
-import java.util.ArrayList;
-import java.io.OutputStream;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
 import org.apache.pdfbox.pdfwriter.ContentStreamWriter;
-import java.io.File;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.util.Matrix;
+
+import java.awt.geom.Point2D;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 去掉 PDF 页面内容中的图片绘制，并用白色矩形盖住页眉、页脚区域。
+ *
+ * <ul>
+ *   <li>{@link #process}：逐页顺序处理，整份文档加载在内存中；</li>
+ *   <li>{@link #processParallel}：上千页的大文件用。文档以「内存 + 临时文件」方式加载，流数据超出内存上限后落盘；
+ *       各页内容流的解析、过滤、重新序列化交给线程池，写回文档仍在调用线程中按页序提交，
+ *       同时在途的页数有上限。两种方式的输出完全相同。</li>
+ * </ul>
+ *
+ * 页眉页脚有两种去法（{@link Mode}）：原来的白色矩形覆盖，或在同一遍 token 过滤中直接删掉落在页眉页脚带内的
+ * 文字和图形操作，输出更小、再次提取文字时也不会读到页眉页脚。
+ *
+ * PDDocument 不是线程安全的：工作线程只拿到内容流的字节和该页的 {@link PageInfo}，不碰文档对象。
+ */
 public class PdfHeaderFooterRemover {
+
+    // 并行模式下流数据最多占用的堆内存，超出部分写入临时文件
+    private static final long MAIN_MEMORY_BYTES = 32L * 1024 * 1024;
+
+    public enum Mode {
+        /** 用白色矩形盖住页眉页脚带，原内容仍在 */
+        OVERPAINT,
+        /** 删除页眉页脚带内的文字、路径、内嵌图片和表单，不再覆盖 */
+        REMOVE
+    }
+
+    /**
+     * 页面底部、顶部页眉页脚带的高度（pt），分别从页面下边、上边量起
+     */
+    public static final class Bands {
+        /** 原来写死的高度 */
+        public static final Bands DEFAULT = new Bands(125, 120);
+        /** 处理时用 {@link PdfBandDetector} 从文档中检测 */
+        public static final Bands AUTO = new Bands();
+
+        private final float bottom;
+        private final float top;
+        private final boolean auto;
+
+        public Bands(float bottom, float top) {
+            if (bottom < 0 || top < 0) {
+                throw new IllegalArgumentException("页眉页脚高度不能为负：" + bottom + ", " + top);
+            }
+            this.bottom = bottom;
+            this.top = top;
+            this.auto = false;
+        }
+
+        private Bands() {
+            this.bottom = 0;
+            this.top = 0;
+            this.auto = true;
+        }
+
+        public float getBottom() {
+            return bottom;
+        }
+
+        public float getTop() {
+            return top;
+        }
+
+        // AUTO 在这里检测，得到整份文档共用的高度
+        Bands resolve(PDDocument document) throws IOException {
+            return auto ? PdfBandDetector.detect(document) : this;
+        }
+
+        @Override
+        public String toString() {
+            return auto ? "Bands[auto]" : "Bands[bottom=" + bottom + ", top=" + top + "]";
+        }
+    }
+
     public static void main(String[] args) {
         String inputFile = "/Users/Jenius/Desktop/财评报告.pdf";
         String outputFile = "/Users/Jenius/Desktop/no_header_footer.pdf";
 
-        try (PDDocument document = PDDocument.load(new File(inputFile))) {
+        try {
+            processParallel(new File(inputFile), new File(outputFile), Runtime.getRuntime().availableProcessors());
+            System.out.println("处理完成，输出文件：" + outputFile);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 逐页顺序处理，白色矩形覆盖页眉页脚
+     */
+    public static void process(File inputFile, File outputFile) throws IOException {
+        process(inputFile, outputFile, Mode.OVERPAINT);
+    }
 
+    /**
+     * 逐页顺序处理，页眉页脚高度用原来的固定值
+     */
+    public static void process(File inputFile, File outputFile, Mode mode) throws IOException {
+        process(inputFile, outputFile, mode, Bands.DEFAULT);
+    }
+
+    /**
+     * 逐页顺序处理
+     */
+    public static void process(File inputFile, File outputFile, Mode mode, Bands bands) throws IOException {
+        try (PDDocument document = PDDocument.load(inputFile)) {
+            Bands resolved = bands.resolve(document);
             for (PDPage page : document.getPages()) {
-                PDRectangle mediaBox = page.getMediaBox();
-                float width = mediaBox.getWidth();
-                float height = mediaBox.getHeight();
-
-                // 移除图像绘制操作
-                PDFStreamParser parser = new PDFStreamParser((PDContentStream) page.getContents());
-                parser.parse();
-                List<Object> tokens = parser.getTokens();
-                List<Object> newTokens = new ArrayList<>();
-
-                for (int i = 0; i < tokens.size(); i++) {
-                    Object token = tokens.get(i);
-                    if (token instanceof Operator) {
-                        Operator op = (Operator) token;
-                        if ("Do".equals(op.getName())) {
-                            if (i > 0 && tokens.get(i - 1) instanceof COSName) {
-                                COSName objectName = (COSName) tokens.get(i - 1);
-                                PDXObject xobject = page.getResources().getXObject(objectName);
-                                if (xobject instanceof PDImageXObject) {
-                                    // 跳过图像操作及其操作数
-                                    continue;
-                                }
-                            }
-                        }
+                byte[] content = filter(readContents(page), PageInfo.of(page, mode, resolved));
+                commit(document, page, content, mode, resolved);
+            }
+            document.save(outputFile);
+        }
+    }
+
+    /**
+     * 并行处理，白色矩形覆盖页眉页脚
+     */
+    public static void processParallel(File inputFile, File outputFile, int threads) throws IOException {
+        processParallel(inputFile, outputFile, threads, Mode.OVERPAINT);
+    }
+
+    /**
+     * 并行处理，页眉页脚高度用原来的固定值
+     */
+    public static void processParallel(File inputFile, File outputFile, int threads, Mode mode) throws IOException {
+        processParallel(inputFile, outputFile, threads, mode, Bands.DEFAULT);
+    }
+
+    /**
+     * 并行处理：内容流的解析和过滤在 threads 个工作线程上进行，结果按页序写回。
+     * {@link Bands#AUTO} 的检测在开始逐页处理前完成，只读抽样页
+     */
+    public static void processParallel(File inputFile, File outputFile, int threads, final Mode mode, Bands bands)
+            throws IOException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads 必须大于 0：" + threads);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger seq = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "pdf-page-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        int maxInFlight = threads * 2;
+        try (PDDocument document = PDDocument.load(inputFile, MemoryUsageSetting.setupMixed(MAIN_MEMORY_BYTES))) {
+            Bands resolved = bands.resolve(document);
+            Iterator<PDPage> pages = document.getPages().iterator();
+            Deque<PDPage> pendingPages = new ArrayDeque<>();
+            Deque<Future<byte[]>> pending = new ArrayDeque<>();
+            while (pages.hasNext() || !pending.isEmpty()) {
+                // 先把在途的页补满：读内容流、收集页面信息都在本线程，解析与过滤交给线程池
+                while (pages.hasNext() && pending.size() < maxInFlight) {
+                    PDPage page = pages.next();
+                    final byte[] content = readContents(page);
+                    final PageInfo info = PageInfo.of(page, mode, resolved);
+                    pendingPages.add(page);
+                    pending.add(pool.submit(() -> filter(content, info)));
+                }
+                // 再按页序提交最早的一页
+                commit(document, pendingPages.poll(), await(pending.poll()), mode, resolved);
+            }
+            document.save(outputFile);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("页面内容处理失败", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("页面内容处理被中断", e);
+        }
+    }
+
+    // 页面内容流（多个流时与 PDPage.getContents 一样以换行拼接）
+    private static byte[] readContents(PDPage page) throws IOException {
+        try (InputStream in = page.getContents()) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    /**
+     * 工作线程过滤一页所需的全部信息，在持有 document 的线程中收集
+     */
+    static final class PageInfo {
+        final Set<COSName> images;          // 属于图片的 XObject 名字
+        final Map<COSName, float[]> forms;  // 表单 XObject 的外框（已按表单矩阵变换）：minX, minY, maxX, maxY
+        final boolean removeBands;
+        final float bottom;                 // y <= bottom 为底部带
+        final float top;                    // y >= top 为顶部带
+
+        private PageInfo(Set<COSName> images, Map<COSName, float[]> forms, boolean removeBands, float bottom, float top) {
+            this.images = images;
+            this.forms = forms;
+            this.removeBands = removeBands;
+            this.bottom = bottom;
+            this.top = top;
+        }
+
+        static PageInfo of(PDPage page, Mode mode, Bands bands) throws IOException {
+            PDRectangle mediaBox = page.getMediaBox();
+            float bottom = mediaBox.getLowerLeftY() + bands.getBottom();
+            float top = mediaBox.getUpperRightY() - bands.getTop();
+            PDResources resources = page.getResources();
+            if (resources == null) {
+                return new PageInfo(Collections.<COSName>emptySet(), Collections.<COSName, float[]>emptyMap(),
+                        mode == Mode.REMOVE, bottom, top);
+            }
+            Set<COSName> images = new HashSet<>();
+            Map<COSName, float[]> forms = new HashMap<>();
+            for (COSName name : resources.getXObjectNames()) {
+                if (resources.isImageXObject(name)) {
+                    images.add(name);
+                } else if (mode == Mode.REMOVE) {
+                    PDXObject xobject = resources.getXObject(name);
+                    if (xobject instanceof PDFormXObject && ((PDFormXObject) xobject).getBBox() != null) {
+                        PDFormXObject form = (PDFormXObject) xobject;
+                        forms.put(name, bounds(form.getMatrix(), form.getBBox().getLowerLeftX(), form.getBBox().getLowerLeftY(),
+                                form.getBBox().getUpperRightX(), form.getBBox().getUpperRightY()));
                     }
-                    newTokens.add(token);
                 }
+            }
+            return new PageInfo(images, forms, mode == Mode.REMOVE, bottom, top);
+        }
+
+        boolean inBand(float y) {
+            return y <= bottom || y >= top;
+        }
+
+        // 整个外框都在某一条带内
+        boolean inBand(float[] box) {
+            return box[3] <= bottom || box[1] >= top;
+        }
+    }
+
+    /**
+     * 过滤一页的内容流并重新序列化；只读参数，可在任意线程执行
+     */
+    static byte[] filter(byte[] content, PageInfo info) throws IOException {
+        PDFStreamParser parser = new PDFStreamParser(content);
+        parser.parse();
+        List<Object> tokens = parser.getTokens();
+        List<Object> newTokens = info.removeBands
+                ? new BandFilter(info, tokens.size()).run(tokens)
+                : removeImages(tokens, info.images);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length);
+        ContentStreamWriter writer = new ContentStreamWriter(out);
+        writer.writeTokens(newTokens);
+        return out.toByteArray();
+    }
+
+    // 移除图像绘制操作
+    private static List<Object> removeImages(List<Object> tokens, Set<COSName> images) {
+        List<Object> newTokens = new ArrayList<>(tokens.size());
 
-                PDStream updatedStream = new PDStream(document);
-                try (OutputStream out = updatedStream.createOutputStream()) {
-                    ContentStreamWriter writer = new ContentStreamWriter(out);
-                    writer.writeTokens(newTokens);
+        for (int i = 0; i < tokens.size(); i++) {
+            Object token = tokens.get(i);
+            if (token instanceof Operator) {
+                Operator op = (Operator) token;
+                if ("Do".equals(op.getName())) {
+                    if (i > 0 && tokens.get(i - 1) instanceof COSName && images.contains(tokens.get(i - 1))) {
+                        // 跳过图像操作及其操作数
+                        continue;
+                    }
                 }
-                page.setContents(updatedStream);
+            }
+            newTokens.add(token);
+        }
+        return newTokens;
+    }
 
-                // 覆盖页眉（顶部 50 像素）和页脚（底部 50 像素）
-                try (PDPageContentStream contentStream = new PDPageContentStream(document, page,
-                        PDPageContentStream.AppendMode.APPEND, true, true)) {
+    /**
+     * 删除页眉页脚带内的内容：跟踪 q/Q、cm 和文字矩阵，算出每个操作在页面上的位置。
+     *
+     * <ul>
+     *   <li>文字：基线起点落在带内的 Tj / TJ / ' / " 连同操作数删除；' 和 " 自带的换行、间距设置改写成
+     *       T* / Tw / Tc 保留，后面文字的位置不受影响；</li>
+     *   <li>路径：构造操作先攒着，绘制时整条路径的外框都在带内才连同绘制操作一起删除；用作裁剪（W / W*）的路径一律保留；</li>
+     *   <li>表单 XObject、内嵌图片：变换后的外框都在带内才删除；图片 XObject 与原逻辑一样全部删除（连同名字操作数）。</li>
+     * </ul>
+     * 其余操作（颜色、字体、标记内容等）原样保留。
+     */
+    private static final class BandFilter {
+        private final PageInfo info;
+        private final List<Object> out;
+        private final List<Object> operands = new ArrayList<>();
+        private final Deque<State> stack = new ArrayDeque<>();
+        private State gs = new State();
+        private Matrix tm = new Matrix();
+        private Matrix tlm = new Matrix();
 
-                    contentStream.setNonStrokingColor(1.0f); // 设置白色
+        // 尚未绘制的路径
+        private final List<Object> path = new ArrayList<>();
+        private final float[] pathBox = new float[4];
+        private boolean pathClip;
 
-                    // 页眉区域
-                    contentStream.addRect(0, 0, width, 125);
-                    contentStream.fill();
+        BandFilter(PageInfo info, int size) {
+            this.info = info;
+            this.out = new ArrayList<>(size);
+            resetPath();
+        }
 
-                    // 页脚区域
-                    contentStream.addRect(0, height-120, width, 120);
-                    contentStream.fill();
+        List<Object> run(List<Object> tokens) {
+            for (Object token : tokens) {
+                if (token instanceof Operator) {
+                    accept((Operator) token);
+                    operands.clear();
+                } else {
+                    operands.add(token);
                 }
             }
+            flushPath(true);
+            out.addAll(operands);   // 末尾多余的操作数原样保留
+            return out;
+        }
 
-            document.save(outputFile);
-            System.out.println("处理完成，输出文件：" + outputFile);
+        private void accept(Operator op) {
+            String name = op.getName();
+            switch (name) {
+                // ── 路径 ──
+                case "m":
+                case "l":
+                case "c":
+                case "v":
+                case "y":
+                    for (int i = 0; i + 1 < operands.size(); i += 2) {
+                        addPathPoint(number(i), number(i + 1));
+                    }
+                    addToPath(op);
+                    return;
+                case "re":
+                    if (operands.size() >= 4) {
+                        float x = number(0), y = number(1), w = number(2), h = number(3);
+                        addPathPoint(x, y);
+                        addPathPoint(x + w, y);
+                        addPathPoint(x, y + h);
+                        addPathPoint(x + w, y + h);
+                    }
+                    addToPath(op);
+                    return;
+                case "h":
+                    addToPath(op);
+                    return;
+                case "W":
+                case "W*":
+                    pathClip = true;
+                    addToPath(op);
+                    return;
+                case "S":
+                case "s":
+                case "f":
+                case "F":
+                case "f*":
+                case "B":
+                case "B*":
+                case "b":
+                case "b*":
+                case "n":
+                    addToPath(op);
+                    flushPath(pathClip || path.size() == 1 || !info.inBand(pathBox));
+                    return;
+                default:
+                    break;
+            }
+            // 非路径操作前，未绘制的路径（不规范的内容流）原样保留
+            flushPath(true);
 
-        } catch (Exception e) {
-            e.printStackTrace();
+            switch (name) {
+                // ── 图形状态 ──
+                case "q":
+                    stack.push(gs.copy());
+                    break;
+                case "Q":
+                    if (!stack.isEmpty()) {
+                        gs = stack.pop();
+                    }
+                    break;
+                case "cm":
+                    if (operands.size() >= 6) {
+                        gs.ctm.concatenate(new Matrix(number(0), number(1), number(2), number(3), number(4), number(5)));
+                    }
+                    break;
+                // ── 文字位置 ──
+                case "BT":
+                    tm = new Matrix();
+                    tlm = new Matrix();
+                    break;
+                case "Tm":
+                    if (operands.size() >= 6) {
+                        tlm = new Matrix(number(0), number(1), number(2), number(3), number(4), number(5));
+                        tm = tlm.clone();
+                    }
+                    break;
+                case "Td":
+                    if (operands.size() >= 2) {
+                        moveText(number(0), number(1));
+                    }
+                    break;
+                case "TD":
+                    if (operands.size() >= 2) {
+                        gs.leading = -number(1);
+                        moveText(number(0), number(1));
+                    }
+                    break;
+                case "T*":
+                    moveText(0, -gs.leading);
+                    break;
+                case "TL":
+                    if (operands.size() >= 1) {
+                        gs.leading = number(0);
+                    }
+                    break;
+                case "Ts":
+                    if (operands.size() >= 1) {
+                        gs.rise = number(0);
+                    }
+                    break;
+                // ── 文字绘制 ──
+                case "Tj":
+                case "TJ":
+                    if (textInBand()) {
+                        return;
+                    }
+                    break;
+                case "'":
+                    moveText(0, -gs.leading);
+                    if (textInBand()) {
+                        out.add(Operator.getOperator("T*"));
+                        return;
+                    }
+                    break;
+                case "\"":
+                    moveText(0, -gs.leading);
+                    if (textInBand() && operands.size() >= 3) {
+                        emit(Operator.getOperator("Tw"), operands.get(0));
+                        emit(Operator.getOperator("Tc"), operands.get(1));
+                        out.add(Operator.getOperator("T*"));
+                        return;
+                    }
+                    break;
+                // ── 外部对象 ──
+                case "Do":
+                    if (!operands.isEmpty() && operands.get(0) instanceof COSName) {
+                        COSName xobject = (COSName) operands.get(0);
+                        if (info.images.contains(xobject)) {
+                            return;
+                        }
+                        float[] box = info.forms.get(xobject);
+                        if (box != null && info.inBand(bounds(gs.ctm, box[0], box[1], box[2], box[3]))) {
+                            return;
+                        }
+                    }
+                    break;
+                case "BI":
+                    // 内嵌图片画在当前坐标系的单位正方形内
+                    if (info.inBand(bounds(gs.ctm, 0, 0, 1, 1))) {
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            emit(op);
+        }
+
+        private void moveText(float tx, float ty) {
+            tlm.concatenate(Matrix.getTranslateInstance(tx, ty));
+            tm = tlm.clone();
+        }
+
+        // 当前文字基线起点（含上标偏移）在页面上的 y 是否落在带内
+        private boolean textInBand() {
+            return info.inBand(tm.multiply(gs.ctm).transformPoint(0, gs.rise).y);
+        }
+
+        private void addPathPoint(float x, float y) {
+            Point2D.Float p = gs.ctm.transformPoint(x, y);
+            pathBox[0] = Math.min(pathBox[0], p.x);
+            pathBox[1] = Math.min(pathBox[1], p.y);
+            pathBox[2] = Math.max(pathBox[2], p.x);
+            pathBox[3] = Math.max(pathBox[3], p.y);
+        }
+
+        private void addToPath(Operator op) {
+            path.addAll(operands);
+            path.add(op);
+        }
+
+        // keep 为 false 时丢弃整条路径
+        private void flushPath(boolean keep) {
+            if (keep) {
+                out.addAll(path);
+            }
+            path.clear();
+            resetPath();
+        }
+
+        private void resetPath() {
+            pathBox[0] = Float.MAX_VALUE;
+            pathBox[1] = Float.MAX_VALUE;
+            pathBox[2] = -Float.MAX_VALUE;
+            pathBox[3] = -Float.MAX_VALUE;
+            pathClip = false;
+        }
+
+        // 原样输出当前操作及其操作数
+        private void emit(Operator op) {
+            out.addAll(operands);
+            out.add(op);
+        }
+
+        // 输出一个改写的操作
+        private void emit(Operator op, Object operand) {
+            out.add(operand);
+            out.add(op);
+        }
+
+        private float number(int i) {
+            Object o = operands.get(i);
+            return o instanceof COSNumber ? ((COSNumber) o).floatValue() : 0;
+        }
+
+        /**
+         * q / Q 保存、恢复的图形状态中与位置有关的部分：CTM，以及属于文字状态的行距和上标偏移
+         */
+        private static final class State {
+            Matrix ctm = new Matrix();
+            float leading;
+            float rise;
+
+            State copy() {
+                State s = new State();
+                s.ctm = ctm.clone();
+                s.leading = leading;
+                s.rise = rise;
+                return s;
+            }
+        }
+    }
+
+    // 矩形四角经 matrix 变换后的外框：minX, minY, maxX, maxY
+    private static float[] bounds(Matrix matrix, float x0, float y0, float x1, float y1) {
+        float[] box = {Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        float[][] corners = {{x0, y0}, {x1, y0}, {x0, y1}, {x1, y1}};
+        for (float[] c : corners) {
+            Point2D.Float p = matrix.transformPoint(c[0], c[1]);
+            box[0] = Math.min(box[0], p.x);
+            box[1] = Math.min(box[1], p.y);
+            box[2] = Math.max(box[2], p.x);
+            box[3] = Math.max(box[3], p.y);
+        }
+        return box;
+    }
+
+    // 写回新的内容流，OVERPAINT 时再追加遮盖页眉页脚的白色矩形；只能在持有 document 的线程中调用
+    private static void commit(PDDocument document, PDPage page, byte[] content, Mode mode, Bands bands)
+            throws IOException {
+        PDRectangle mediaBox = page.getMediaBox();
+        float width = mediaBox.getWidth();
+        float height = mediaBox.getHeight();
+
+        PDStream updatedStream = new PDStream(document);
+        try (OutputStream out = updatedStream.createOutputStream()) {
+            out.write(content);
+        }
+        page.setContents(updatedStream);
+        if (mode == Mode.REMOVE) {
+            return;
+        }
+
+        // 白色矩形覆盖页眉页脚带
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page,
+                PDPageContentStream.AppendMode.APPEND, true, true)) {
+
+            contentStream.setNonStrokingColor(1.0f); // 设置白色
+
+            // 页脚区域
+            if (bands.getBottom() > 0) {
+                contentStream.addRect(0, 0, width, bands.getBottom());
+                contentStream.fill();
+            }
+
+            // 页眉区域
+            if (bands.getTop() > 0) {
+                contentStream.addRect(0, height - bands.getTop(), width, bands.getTop());
+                contentStream.fill();
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,207 @@
+package Utils;
+
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 跨 run 查找 ${key} 占位符：逐字符走一遍状态机，记下每个占位符起止所在的 run 和偏移，
+ * 不拼接整段文本、不跑正则。
+ *
+ * <p>匹配规则与 {@code \$\{([^}]+)\}} 相同：key 至少一个字符、不含 '}'；未闭合或 ${} 不算占位符。
+ * 文本取各 run 的 getText(0)，与断开底层 XML 的 run 一样跳过，和原来的拼接方式一致。</p>
+ *
+ * <p>替换时只改写含占位符的 run：占位符起始 run 写入「前缀 + 取值」，结束 run 保留后缀，
+ * 中间被整体吃掉的 run 删除，其余 run 连同格式原样不动。</p>
+ */
+public final class RunPlaceholderScanner {
+
+    /**
+     * 一个占位符的位置：从 startRun 的 startOffset 到 endRun 的 endOffset（不含）
+     */
+    public static final class Hit {
+        public final int startRun;
+        public final int startOffset;
+        public final int endRun;
+        public final int endOffset;
+        public final String key;
+
+        Hit(int startRun, int startOffset, int endRun, int endOffset, String key) {
+            this.startRun = startRun;
+            this.startOffset = startOffset;
+            this.endRun = endRun;
+            this.endOffset = endOffset;
+            this.key = key;
+        }
+    }
+
+    private static final int TEXT = 0;
+    private static final int DOLLAR = 1;   // 刚读到 '$'
+    private static final int KEY = 2;      // 已读到 "${"，正在收集 key
+
+    private final String[] texts;          // 各 run 的 getText(0)，断开的 run 为 null
+    private final List<Hit> hits;
+
+    private RunPlaceholderScanner(String[] texts, List<Hit> hits) {
+        this.texts = texts;
+        this.hits = hits;
+    }
+
+    /**
+     * 扫描段落中的占位符
+     */
+    public static RunPlaceholderScanner scan(XWPFParagraph paragraph) {
+        List<XWPFRun> runs = paragraph.getRuns();
+        String[] texts = new String[runs.size()];
+        for (int i = 0; i < texts.length; i++) {
+            try {
+                texts[i] = runs.get(i).getText(0);
+            } catch (Exception e) {
+                // 如果该 run 与底层 XML 断开，则跳过
+            }
+        }
+        return scan(texts);
+    }
+
+    static RunPlaceholderScanner scan(String[] texts) {
+        List<Hit> hits = null;
+        StringBuilder key = null;
+        int state = TEXT;
+        int markRun = 0, markOffset = 0;
+
+        for (int r = 0; r < texts.length; r++) {
+            String t = texts[r];
+            if (t == null) continue;
+            for (int i = 0, n = t.length(); i < n; i++) {
+                char c = t.charAt(i);
+                switch (state) {
+                    case TEXT:
+                        if (c == '$') {
+                            state = DOLLAR;
+                            markRun = r;
+                            markOffset = i;
+                        }
+                        break;
+                    case DOLLAR:
+                        if (c == '{') {
+                            state = KEY;
+                            if (key == null) key = new StringBuilder();
+                            key.setLength(0);
+                        } else if (c == '$') {
+                            markRun = r;          // "$${a}" 从第二个 '$' 开始
+                            markOffset = i;
+                        } else {
+                            state = TEXT;
+                        }
+                        break;
+                    default:
+                        if (c != '}') {
+                            key.append(c);
+                            break;
+                        }
+                        if (key.length() > 0) {   // "${}" 不算占位符
+                            if (hits == null) hits = new ArrayList<>();
+                            hits.add(new Hit(markRun, markOffset, r, i + 1, key.toString()));
+                        }
+                        state = TEXT;
+                }
+            }
+        }
+        return new RunPlaceholderScanner(texts,
+                hits == null ? Collections.<Hit>emptyList() : hits);
+    }
+
+    public boolean isEmpty() {
+        return hits.isEmpty();
+    }
+
+    public List<Hit> hits() {
+        return Collections.unmodifiableList(hits);
+    }
+
+    /**
+     * 第 run 个 run 扫描时的文本，断开的 run 为 null
+     */
+    String text(int run) {
+        return texts[run];
+    }
+
+    /**
+     * 按取值表算出替换后各 run 的文本；没有被占位符碰到的 run 返回原字符串本身，
+     * 断开的 run 为 null。取值表里没有的 key 替换为空串。
+     */
+    public String[] rewrite(Map<String, String> values) {
+        String[] out = texts.clone();
+        StringBuilder sb = new StringBuilder();
+        int k = 0;   // 第一个尚未结束的占位符；占位符按出现顺序排列、互不重叠
+        for (int r = 0; r < texts.length && k < hits.size(); r++) {
+            if (hits.get(k).startRun > r) continue;   // 本 run 不含占位符
+            String t = texts[r];
+            if (t != null) {
+                sb.setLength(0);
+                int pos = 0;
+                for (int j = k; j < hits.size() && hits.get(j).startRun <= r; j++) {
+                    Hit hit = hits.get(j);
+                    boolean starts = hit.startRun == r;
+                    sb.append(t, pos, starts ? hit.startOffset : 0);
+                    if (starts) sb.append(value(values, hit.key));
+                    pos = hit.endRun == r ? hit.endOffset : t.length();
+                }
+                sb.append(t, pos, t.length());
+                out[r] = sb.toString();
+            }
+            while (k < hits.size() && hits.get(k).endRun <= r) k++;
+        }
+        return out;
+    }
+
+    /**
+     * 在原段落上替换：只改写含占位符的 run，替换后为空的 run 删除
+     *
+     * @return 是否有替换
+     */
+    public boolean replaceInPlace(XWPFParagraph paragraph, Map<String, String> values) {
+        if (hits.isEmpty()) {
+            return false;
+        }
+        String[] out = rewrite(values);
+        // 从后往前，删除 run 不影响前面的下标
+        for (int r = out.length - 1; r >= 0; r--) {
+            if (out[r] == texts[r]) continue;
+            if (out[r].isEmpty()) {
+                paragraph.removeRun(r);
+            } else {
+                paragraph.getRuns().get(r).setText(out[r], 0);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 所有命中 key 的取值是否都是单行（与 insertReplacement 的判定一致：split("\n") 后只有一段）
+     */
+    public boolean allSingleLine(Map<String, String> values) {
+        for (Hit hit : hits) {
+            if (!isSingleLine(value(values, hit.key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isSingleLine(String v) {
+        // split 会丢掉末尾的空串："a\n" 是一段，"\n" 是零段
+        int end = v.length();
+        while (end > 0 && v.charAt(end - 1) == '\n') end--;
+        return end == 0 ? v.isEmpty() : v.lastIndexOf('\n', end - 1) < 0;
+    }
+
+    private static String value(Map<String, String> values, String key) {
+        String v = values.get(key);
+        return v != null ? v : "";
+    }
+}
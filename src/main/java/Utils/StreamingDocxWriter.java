@@ -0,0 +1,201 @@
+package Utils;
+
+import org.apache.poi.ooxml.POIXMLTypeLoader;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBody;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTDocument1;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSectPr;
+
+import javax.xml.namespace.QName;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 流式写出 docx（思路同 POI 的 SXSSF）：正文边生成边写进 zip，写完的段落 / 表格随即从文档中删掉，
+ * 内存里只留下尚未刷出的那一小段，文档再大占用也基本不变。
+ *
+ * <pre>
+ * try (StreamingDocxWriter writer = new StreamingDocxWriter(doc, out)) {
+ *     ... 在 doc 末尾追加段落、表格 ...
+ *     writer.flush();   // 已经写完的正文元素刷出
+ *     writer.finish();  // 全部生成成功后才写结尾
+ * }
+ * </pre>
+ *
+ * <ul>
+ *   <li>document.xml 在构造时就开始写：先写出根元素和 &lt;w:body&gt;，之后每次 {@link #flush()}
+ *       把 body 里现有的元素按顺序序列化后删除，{@link #finish()} 时补上节属性（sectPr）和结束标签；</li>
+ *   <li>样式、编号、页眉页脚等其余部件在 finish 时由 doc 自己写出，再原样拷进同一个 zip；</li>
+ *   <li>没有 finish 就 {@link #close()}（生成中途抛异常）视为放弃：不写结尾，zip 不完整，
+ *       不会留下一个能正常打开、内容却被截断的文档；</li>
+ *   <li>刷出之后就不能再改已写出的元素，也不能在它们之前插入，只能继续在末尾追加。</li>
+ * </ul>
+ */
+public class StreamingDocxWriter implements Closeable {
+
+    private static final String MARK = "streaming-docx-body";
+    private static final String XML_DECL = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\r\n";
+    private static final Pattern XMLNS = Pattern.compile("xmlns:([\\w.-]+)=\"([^\"]*)\"");
+
+    private final XWPFDocument doc;
+    private final String partName;
+    private final ZipOutputStream zip;
+    private final Writer xml;
+    private final XmlOptions elementOptions;
+    private long written;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * @param doc 要写出的文档，之后只在它的末尾追加内容
+     * @param out 输出流，close 时写完 zip 但不关闭 out
+     */
+    public StreamingDocxWriter(XWPFDocument doc, OutputStream out) throws IOException {
+        this.doc = doc;
+        this.partName = doc.getPackagePart().getPartName().getName().substring(1);
+        this.zip = new ZipOutputStream(out);
+        zip.putNextEntry(new ZipEntry(partName));
+        this.xml = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+
+        String head = split()[0];
+        xml.write(XML_DECL);
+        xml.write(head);
+
+        // 正文元素按根元素上已声明的前缀输出，不再逐个重复声明命名空间
+        Map<String, String> declared = new HashMap<>();
+        int end = head.indexOf('>');
+        Matcher m = XMLNS.matcher(end < 0 ? head : head.substring(0, end));
+        while (m.find()) {
+            declared.put(m.group(1), m.group(2));
+        }
+        this.elementOptions = new XmlOptions(POIXMLTypeLoader.DEFAULT_XML_OPTIONS);
+        elementOptions.setSaveOuter();
+        elementOptions.setSaveNoXmlDecl();
+        elementOptions.setSaveImplicitNamespaces(declared);
+    }
+
+    public XWPFDocument getDocument() {
+        return doc;
+    }
+
+    /**
+     * 已经写出的正文元素个数
+     */
+    public long getWrittenElements() {
+        return written;
+    }
+
+    /**
+     * 把 body 中现有的元素（节属性除外）依次写出并从文档中删除
+     */
+    public void flush() throws IOException {
+        if (closed) {
+            throw new IOException("StreamingDocxWriter 已结束");
+        }
+        CTBody body = doc.getDocument().getBody();
+        try (XmlCursor c = body.newCursor()) {
+            if (c.toFirstChild()) {
+                do {
+                    XmlObject o = c.getObject();
+                    if (o instanceof CTSectPr) {
+                        break;   // sectPr 总是 body 的最后一个子元素，close 时随结尾一起写
+                    }
+                    o.save(xml, elementOptions);
+                    written++;
+                } while (c.toNextSibling());
+            }
+        }
+        // 先通过 XWPF 删除，保持 doc 的段落 / 表格列表与底层 XML 一致
+        for (int i = doc.getBodyElements().size() - 1; i >= 0; i--) {
+            doc.removeBodyElement(i);
+        }
+        // XWPF 只删段落和表格的 XML，其余（内容控件、书签等）在这里清掉
+        while (true) {
+            try (XmlCursor c = body.newCursor()) {
+                if (!c.toFirstChild() || c.getObject() instanceof CTSectPr) {
+                    break;
+                }
+                c.removeXml();
+            }
+        }
+    }
+
+    /**
+     * 刷出剩余正文，写完 document.xml 与其余部件，结束 zip；不关闭构造时传入的输出流
+     */
+    public void finish() throws IOException {
+        flush();
+        closed = true;
+        finished = true;
+        xml.write(split()[1]);
+        xml.flush();
+        zip.closeEntry();
+
+        // 其余部件：doc 此时正文已空，整份写出的开销很小，拷贝时跳过它自己的 document.xml
+        ByteArrayOutputStream rest = new ByteArrayOutputStream();
+        doc.write(rest);
+        byte[] buf = new byte[8192];
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(rest.toByteArray()))) {
+            for (ZipEntry e = in.getNextEntry(); e != null; e = in.getNextEntry()) {
+                if (e.getName().equals(partName)) {
+                    continue;
+                }
+                zip.putNextEntry(new ZipEntry(e.getName()));
+                for (int n = in.read(buf); n > 0; n = in.read(buf)) {
+                    zip.write(buf, 0, n);
+                }
+                zip.closeEntry();
+            }
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    /**
+     * 已经 {@link #finish()} 时什么也不做；否则放弃输出，不写结尾。不关闭构造时传入的输出流
+     */
+    @Override
+    public void close() throws IOException {
+        if (finished || closed) {
+            return;
+        }
+        closed = true;
+        xml.flush();   // 已写出的部分留在输出流中，但缺少结尾和 zip 目录，无法作为 docx 打开
+    }
+
+    // 在 body 开头放一个注释作记号，整份序列化后从记号处切成「body 之前」和「body 之后」两半
+    private String[] split() {
+        CTBody body = doc.getDocument().getBody();
+        try (XmlCursor c = body.newCursor()) {
+            c.toFirstContentToken();
+            c.insertComment(MARK);
+        }
+        XmlOptions options = new XmlOptions(POIXMLTypeLoader.DEFAULT_XML_OPTIONS);
+        options.setSaveSyntheticDocumentElement(new QName(CTDocument1.type.getName().getNamespaceURI(), "document"));
+        String text = doc.getDocument().xmlText(options);
+        try (XmlCursor c = body.newCursor()) {
+            c.toFirstContentToken();
+            c.removeXml();
+        }
+        String mark = "<!--" + MARK + "-->";
+        int at = text.indexOf(mark);
+        return new String[]{text.substring(0, at), text.substring(at + mark.length())};
+    }
+}
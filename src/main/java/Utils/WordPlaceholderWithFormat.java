@@ -2,20 +2,28 @@ package Utils;
 
 import org.apache.poi.xwpf.usermodel.*;
 import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTblPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTcPr;
 import org.openxmlformats.schemas.wordprocessingml.x2006.main.STTblLayoutType;
 import org.openxmlformats.schemas.wordprocessingml.x2006.main.STTblWidth;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -23,16 +31,17 @@ import java.util.regex.Pattern;
 public class WordPlaceholderWithFormat{
 
     // 匹配 ${...} 的占位符
-    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
+    static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
     private static final XWPFDocument newDoc = new XWPFDocument();
 
-    private static final Map<String, String> placeholders = new HashMap<>();
+    // 占位符取值提供者：取值可能是耗时的汇总、摘要生成等，只有模版里出现的 key 才会被计算（见 LazyValues）
+    private static final Map<String, Callable<String>> providers = new LinkedHashMap<>();
     static {
-        placeholders.put("name", "张三");
-        placeholders.put("department", "技术部");
-        placeholders.put("report_date", "2023-10-01");
+        providers.put("name", LazyValues.constant("张三"));
+        providers.put("department", LazyValues.constant("技术部"));
+        providers.put("report_date", LazyValues.constant("2023-10-01"));
         // 示例：既包含表头文本，又包含 Markdown 风格表格
-        placeholders.put("sales_data", "销售额表：" +
+        providers.put("sales_data", () -> "销售额表：" +
                 "\n| 产品 | 销量 |" +
                 "\n|----|----|\n| 手机 | 1001 |\n| 电脑 | 501 |\n " +
                 "我有一个梦想" +
@@ -42,8 +51,16 @@ public class WordPlaceholderWithFormat{
                 "有梦想就会有奇迹3\n" +
                 "有梦想就会有奇迹4\n");
     }
+    // 本次生成用的取值表，每个 key 最多计算一次
+    private static final LazyValues placeholders = LazyValues.of(providers);
+
+    public static void main(String[] args) throws Exception {
+        // 批量套打：模版.docx 数据.csv|.json|.jsonl 输出目录|输出.zip [线程数] [文件名列]
+        if (args.length >= 3) {
+            MailMerge.main(args);
+            return;
+        }
 
-    public static void main(String[] args) throws IOException {
         // 原始 .docx 文件路径
         String inputPath = "/Users/Jenius/Desktop/格式测试模版.docx";
         // 输出 .docx 文件路径
@@ -60,23 +77,59 @@ public class WordPlaceholderWithFormat{
             originalDoc = new XWPFDocument(fis);
         }
 
-        for (IBodyElement element : originalDoc.getBodyElements()) {
+        // 模版中实际出现的占位符先交给线程池并发求值，处理到对应段落时只需取结果
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(providers.size(), 8)));
+        placeholders.prefetch(placeholderKeys(originalDoc), pool);
+
+        // 5. 边处理边写出：每处理完一个元素就刷出，newDoc 中只留尚未写出的内容，结果文档再大内存也不涨
+        try (FileOutputStream fos = new FileOutputStream(outputPath);
+             StreamingDocxWriter writer = new StreamingDocxWriter(newDoc, fos)) {
+            for (IBodyElement element : originalDoc.getBodyElements()) {
+                if (element instanceof XWPFParagraph) {
+                    // 填充段落
+                    processParagraph((XWPFParagraph)element);
+                } else if (element instanceof XWPFTable) {
+                    // 填充表格
+                    processTable((XWPFTable)element);
+                }
+                writer.flush();
+            }
+            writer.finish();
+            System.out.println("处理完成，生成新文档：" + outputPath);
+        }catch (Exception e){
+            // 未 finish 的输出不完整，删掉避免误用
+            Files.deleteIfExists(outputPathPath);
+            System.out.println("发生错误：" + e.getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.println("已计算的占位符：" + placeholders.resolvedKeys());
+    }
+
+    /**
+     * 收集文档中出现的全部占位符 key（正文段落及表格单元格内的段落）
+     */
+    public static Set<String> placeholderKeys(XWPFDocument doc) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (IBodyElement element : doc.getBodyElements()) {
             if (element instanceof XWPFParagraph) {
-                // 填充段落
-                processParagraph((XWPFParagraph)element);
+                collectKeys((XWPFParagraph) element, keys);
             } else if (element instanceof XWPFTable) {
-                // 填充表格
-                processTable((XWPFTable)element);
+                for (XWPFTableRow row : ((XWPFTable) element).getRows()) {
+                    for (XWPFTableCell cell : row.getTableCells()) {
+                        for (XWPFParagraph p : cell.getParagraphs()) {
+                            collectKeys(p, keys);
+                        }
+                    }
+                }
             }
         }
+        return keys;
+    }
 
-        // 5. 写出到结果文件
-        try  {
-            FileOutputStream fos = new FileOutputStream(outputPath);
-            newDoc.write(fos);
-            System.out.println("处理完成，生成新文档：" + outputPath);
-        }catch (Exception e){
-            System.out.println("发生错误：" + e.getMessage());
+    private static void collectKeys(XWPFParagraph paragraph, Set<String> keys) {
+        for (RunPlaceholderScanner.Hit hit : RunPlaceholderScanner.scan(paragraph).hits()) {
+            keys.add(hit.key);
         }
     }
 
@@ -86,7 +139,24 @@ public class WordPlaceholderWithFormat{
      * 若替换内容包含表格，则额外插入表格。
      */
     public static void processTextInTable(XWPFParagraph paragraph) {
+        processTextInTable(paragraph, placeholders);
+    }
+
+    /**
+     * 同上，取值来自 values
+     */
+    static void processTextInTable(XWPFParagraph paragraph, Map<String, String> values) {
+        // 先扫一遍 run：没有占位符直接返回；取值都是单行时只改写含占位符的 run，其余 run 和格式不动
+        RunPlaceholderScanner scan = RunPlaceholderScanner.scan(paragraph);
+        if (scan.isEmpty()) {
+            return;
+        }
+        if (scan.allSingleLine(values)) {
+            scan.replaceInPlace(paragraph, values);
+            return;
+        }
 
+        // 有多行取值（可能包含表格）时按原方式重建
         // 收集该段落中所有 run 的文本并合并
         StringBuilder paragraphText = new StringBuilder();
         for (XWPFRun run : new ArrayList<>(paragraph.getRuns())) {
@@ -125,7 +195,7 @@ public class WordPlaceholderWithFormat{
 
             // 获取占位符内部的内容
             String placeHolderKey = matcher.group(1);
-            String replaceValue = placeholders.getOrDefault(placeHolderKey, "");// todo 正式代码中删除
+            String replaceValue = values.getOrDefault(placeHolderKey, "");// todo 正式代码中删除
 
             // 将占位符替换为对应内容（可能包含表格）
             insertReplacement(paragraph, replaceValue);
@@ -146,24 +216,32 @@ public class WordPlaceholderWithFormat{
      * 若替换内容包含表格，则额外插入表格。
      */
     public static void processParagraph(XWPFParagraph originalPara) {
+        processParagraph(originalPara, placeholders);
+    }
+
+    /**
+     * 同上，取值来自 values
+     */
+    static void processParagraph(XWPFParagraph originalPara, Map<String, String> values) {
         // 在newDoc中新增段落，并保留原段落格式
         XWPFParagraph newPara = newDoc.createParagraph();
 
-        // 可根据需求复制更多段落层级的属性，比如段落对齐方式：
-        newPara.setAlignment(originalPara.getAlignment());
-        newPara.setVerticalAlignment(originalPara.getVerticalAlignment());
-        newPara.setBorderBetween(originalPara.getBorderBetween());
-        newPara.setBorderBottom(originalPara.getBorderBottom());
-        newPara.setBorderTop(originalPara.getBorderTop());
-        newPara.setBorderLeft(originalPara.getBorderLeft());
-        newPara.setBorderRight(originalPara.getBorderRight());
-        // 保留首行缩进（首行锁进）
-        newPara.setIndentationFirstLine(originalPara.getIndentationFirstLine());
-        // 保留段落样式，如标题样式
-        newPara.setStyle(originalPara.getStyle());
-        // 如果有自定义样式名，也可以直接复制
+        // 复制段落层级的属性：对齐、边框、首行缩进、样式（与 WordTemplate 共用同一份快照逻辑）
+        WordTemplate.ParagraphFormat.of(originalPara).applyTo(newPara);
 
+        RunPlaceholderScanner scan = RunPlaceholderScanner.scan(originalPara);
+        if (scan.isEmpty()) {
+            // 如果没有占位符则拷贝旧段落到新doc
+            copyParagraph(originalPara, newPara);
+            return;
+        }
+        if (scan.allSingleLine(values)) {
+            // 取值都是单行：逐个 run 连同格式拷贝，只有含占位符的 run 换成替换后的文字
+            copyRuns(originalPara, newPara, scan, scan.rewrite(values));
+            return;
+        }
 
+        // 有多行取值（可能包含表格）时按原方式重建
         // 收集该段落中所有 run 的文本并合并
         StringBuilder paragraphText = new StringBuilder();
         for (XWPFRun run : new ArrayList<>(originalPara.getRuns())) {
@@ -179,11 +257,6 @@ public class WordPlaceholderWithFormat{
 
         // 查找占位符
         Matcher matcher = PLACEHOLDER_PATTERN.matcher(paragraphText.toString());
-        if (!matcher.find()) {
-            // 如果没有占位符则拷贝旧段落到新doc
-            copyParagraph(originalPara, newPara);
-            return;
-        }
 
         // 对段落文本进行逐个替换（可能存在多个占位符）
         int lastIndex = 0;
@@ -199,7 +272,7 @@ public class WordPlaceholderWithFormat{
 
             // 获取占位符内部的内容
             String placeHolderKey = matcher.group(1);
-            String replaceValue = placeholders.getOrDefault(placeHolderKey, "");// todo 正式代码中删除
+            String replaceValue = values.getOrDefault(placeHolderKey, "");// todo 正式代码中删除
 
             // 将占位符替换为对应内容（可能包含表格）
             insertReplacement(newPara, replaceValue);
@@ -221,43 +294,153 @@ public class WordPlaceholderWithFormat{
      */
     public static void insertReplacement(XWPFParagraph paragraph,
                                          String replaceValue) {
+        insertReplacement(newDoc, paragraph, replaceValue);
+    }
+
+    /**
+     * 同上，多行内容生成的段落和表格追加到 doc 末尾
+     */
+    static void insertReplacement(XWPFDocument doc, XWPFParagraph paragraph, String replaceValue) {
         // 判断是否包含类似 Markdown 表格的格式（竖线和换行）
-        String[] lines = replaceValue.split("\n");
-        if (lines.length == 1) {
+        if (RunPlaceholderScanner.isSingleLine(replaceValue)) {
             // 如果仅为单行文本，则直接写入
             XWPFRun run = paragraph.createRun();
             run.setText(replaceValue);
             return;
         }
 
-        List<List<String>> contentList = LineGrouper.groupLines(replaceValue);
+        // 只扫描一遍取值、按偏移分组，行文本和单元格用到时才生成字符串
+        LineGrouper.Groups groups = LineGrouper.scan(replaceValue);
 
-        for (List<String> contentBlock : contentList) {
-            String firstLine = contentBlock.get(0).trim();
-            if (firstLine.startsWith("|") && firstLine.endsWith("|")) {
-                XWPFTable newTable = createTable(contentBlock);
+        for (int g = 0; g < groups.size(); g++) {
+            if (groups.isTable(g)) {
+                XWPFTable newTable = MarkdownTable.create(doc, groups, g);
                 // 如有需要，可在此处对 newTable 设置其他样式
             } else {
                 // 进入文本段落插入逻辑
-                for(String content:contentBlock){
-                    XWPFParagraph newPara = newDoc.createParagraph();
+                for (int i = groups.firstLine(g); i < groups.endLine(g); i++) {
+                    XWPFParagraph newPara = doc.createParagraph();
                     XWPFRun run = newPara.createRun();
-                    run.setText(content.trim());
+                    run.setText(groups.line(i));
                 }
             }
         }
     }
 
 
+    /**
+     * 流式插入替换值：取值来自 Reader（如大模型的流式回答），边读边插入段落和表格，
+     * 结果与整段读完后调用 {@link #insertReplacement(XWPFParagraph, String)} 相同。
+     */
+    public static void insertReplacement(XWPFParagraph paragraph, Reader value) throws IOException {
+        insertReplacement(newDoc, paragraph, value);
+    }
+
+    static void insertReplacement(XWPFDocument doc, XWPFParagraph paragraph, Reader value) throws IOException {
+        try (Writer out = replacementWriter(doc, paragraph)) {
+            char[] buf = new char[8192];
+            for (int n = value.read(buf); n >= 0; n = value.read(buf)) {
+                out.write(buf, 0, n);
+            }
+        }
+    }
+
+    /**
+     * 推送式插入替换值：把收到的 token 依次 write 进返回的 Writer，close 表示取值结束。
+     * 普通行一行结束就插入段落，表格在表格行组结束时整张插入（见 {@link IncrementalLineGrouper}），
+     * 单行取值与原逻辑一样写进 paragraph 本身。
+     */
+    public static Writer replacementWriter(XWPFDocument doc, XWPFParagraph paragraph) {
+        return new ReplacementWriter(doc, paragraph);
+    }
+
+    private static final class ReplacementWriter extends Writer {
+        private final XWPFDocument doc;
+        private final XWPFParagraph paragraph;
+        private final StringBuilder head = new StringBuilder();   // 还不能确定是否为单行时收到的原文
+        private boolean newline;                                  // head 中是否已有换行
+        private IncrementalLineGrouper grouper;                   // 确定是多行之后才创建
+        private boolean closed;
+
+        ReplacementWriter(XWPFDocument doc, XWPFParagraph paragraph) {
+            this.doc = doc;
+            this.paragraph = paragraph;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("取值已结束");
+            }
+            if (grouper != null) {
+                grouper.write(cbuf, off, len);
+                return;
+            }
+            int end = off + len;
+            for (int i = off; i < end; i++) {
+                if (cbuf[i] == '\n') {
+                    newline = true;
+                } else if (newline) {
+                    // 换行之后又有内容，一定是多行：之前收到的连同剩下的交给分组器
+                    head.append(cbuf, off, i - off);
+                    startGrouping();
+                    grouper.write(cbuf, i, end - i);
+                    return;
+                }
+            }
+            head.append(cbuf, off, len);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (grouper == null) {
+                String value = head.toString();
+                if (RunPlaceholderScanner.isSingleLine(value)) {
+                    // 如果仅为单行文本，则直接写入
+                    paragraph.createRun().setText(value);
+                    return;
+                }
+                startGrouping();
+            }
+            grouper.close();
+        }
+
+        private void startGrouping() throws IOException {
+            grouper = new IncrementalLineGrouper(new IncrementalLineGrouper.Listener() {
+                @Override
+                public void onText(String line) {
+                    // 进入文本段落插入逻辑
+                    doc.createParagraph().createRun().setText(line);
+                }
+
+                @Override
+                public void onTable(List<String> lines) {
+                    MarkdownTable.create(doc, lines);
+                }
+            });
+            grouper.write(head.toString());
+            head.setLength(0);
+        }
+    }
+
     /**
      * 在指定段落后插入一个新的段落和表格，而不是将表格直接插入到文档末尾。
      */
     public static XWPFTable createTable(List<String> tableLines) {
-        // 在文档中创建一个表格，并填充数据
-        XWPFTable tempTable = newDoc.createTable();
-        fillMarkdownTable(tempTable, tableLines);
+        return createTable(newDoc, tableLines);
+    }
 
-        return tempTable;
+    static XWPFTable createTable(XWPFDocument doc, List<String> tableLines) {
+        // 整张表一次拼好 XML 再插入，结果与 createTable() + fillMarkdownTable 相同
+        return MarkdownTable.create(doc, tableLines);
     }
 
     /**
@@ -292,9 +475,7 @@ public class WordPlaceholderWithFormat{
         table.setTableAlignment(TableRowAlign.CENTER);
 
         // 解析表头（第一行）
-        String headerLine = tableLines.get(0);
-        headerLine = headerLine.replaceAll("^\\|", "").replaceAll("\\|$", "");
-        String[] headers = headerLine.split("\\|");
+        String[] headers = MarkdownTable.parseRow(tableLines.get(0));
 
         // 默认表格已创建第一行
         XWPFTableRow headerRow = table.getRow(0);
@@ -305,7 +486,7 @@ public class WordPlaceholderWithFormat{
         // 填充表头文本，并设置单元格内容居中
         for (int i = 0; i < headers.length; i++) {
             XWPFTableCell cell = headerRow.getCell(i);
-            cell.setText(headers[i].trim());
+            cell.setText(headers[i]);
             // 设置单元格垂直居中
             cell.setVerticalAlignment(XWPFTableCell.XWPFVertAlign.CENTER);
             // 将单元格内所有段落设置水平居中
@@ -316,10 +497,8 @@ public class WordPlaceholderWithFormat{
 
         // 从第三行开始填充数据行（即索引为 2 及以后的行）
         for (int i = 2; i < tableLines.size(); i++) {
-            String dataLine = tableLines.get(i);
-            // 去除行首和行尾的竖线
-            dataLine = dataLine.replaceAll("^\\|", "").replaceAll("\\|$", "");
-            String[] cols = dataLine.split("\\|");
+            // 去除行首和行尾的竖线后按未转义的竖线切分
+            String[] cols = MarkdownTable.parseRow(tableLines.get(i));
 
             XWPFTableRow dataRow = table.createRow(); // 新建数据行
             // 遍历每一列，并设置文本和居中格式
@@ -331,7 +510,7 @@ public class WordPlaceholderWithFormat{
                 } else {
                     cell = dataRow.addNewTableCell();
                 }
-                cell.setText(cols[colIndex].trim());
+                cell.setText(cols[colIndex]);
                 // 设置单元格垂直居中
                 cell.setVerticalAlignment(XWPFTableCell.XWPFVertAlign.CENTER);
                 // 设置单元格内所有段落水平居中
@@ -369,26 +548,24 @@ public class WordPlaceholderWithFormat{
 
     // 复制段落内容
     private static void copyParagraph(XWPFParagraph oldPara, XWPFParagraph newPara) {
-        newPara.setAlignment(oldPara.getAlignment());
-        newPara.setSpacingBefore(oldPara.getSpacingBefore());
-        newPara.setSpacingAfter(oldPara.getSpacingAfter());
-        newPara.setIndentationLeft(oldPara.getIndentationLeft());
-        newPara.setIndentationRight(oldPara.getIndentationRight());
-
-        for (XWPFRun run : oldPara.getRuns()) {
-            XWPFRun newRun = newPara.createRun();
-            newRun.setText(run.text());
-            newRun.setBold(run.isBold());
-            newRun.setItalic(run.isItalic());
-            newRun.setUnderline(run.getUnderline());
-            if (null != run.getFontSizeAsDouble()){
-                newRun.setFontSize(run.getFontSize());//这里字号null会导致显示错误
-            }else {
-                newRun.setFontSize(12);
-            }
+        WordTemplate.ParagraphCopy.of(oldPara).applyTo(newPara);
+    }
 
-            newRun.setFontFamily(run.getFontFamily());
-            newRun.setColor(run.getColor());
+    // 复制 run 及其格式，texts 为替换后各 run 的文字（未改动的 run 与扫描时的文字是同一个对象）
+    private static void copyRuns(XWPFParagraph oldPara, XWPFParagraph newPara,
+                                 RunPlaceholderScanner scan, String[] texts) {
+        List<XWPFRun> runs = oldPara.getRuns();
+        List<WordTemplate.RunCopy> copies = new ArrayList<>(runs.size());
+        for (int i = 0; i < runs.size(); i++) {
+            WordTemplate.RunCopy copy = WordTemplate.RunCopy.of(runs.get(i));
+            if (texts[i] == scan.text(i)) {
+                copies.add(copy);
+            } else if (!texts[i].isEmpty()) {
+                copies.add(copy.withText(texts[i]));
+            }
+        }
+        for (WordTemplate.RunCopy copy : WordTemplate.RunCopy.merge(copies)) {
+            copy.applyTo(newPara.createRun());
         }
     }
 
@@ -408,7 +585,10 @@ public class WordPlaceholderWithFormat{
                     newCell = newRow.createCell();
                 }
 
-                newCell.getCTTc().setTcPr(oldCell.getCTTc().getTcPr()); // 复制单元格属性
+                CTTcPr tcPr = oldCell.getCTTc().getTcPr();
+                if (tcPr != null) {
+                    newCell.getCTTc().setTcPr(tcPr); // 复制单元格属性，没有时不写出空的 tcPr
+                }
                 newCell.setText(oldCell.getText());
             }
         }
@@ -0,0 +1,515 @@
+package Utils;
+
+import org.apache.poi.xwpf.usermodel.*;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTR;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTblPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTcPr;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+
+/**
+ * 编译后的 Word 模版：模版 docx 只解析一次，拆成「静态段落 / 带 ${...} 槽位的段落 / 表格」三类块，
+ * 之后可以用不同的取值表反复渲染出新文档。
+ *
+ * <p>编译时把需要的段落属性、run 格式、表格 / 单元格属性全部拷贝成快照，模版文档随即关闭；
+ * 渲染只读这些快照，每次输出一个新的 XWPFDocument，因此同一个实例可以被多个线程同时渲染。</p>
+ *
+ * <p>渲染规则与 {@link WordPlaceholderWithFormat} 的静态流程一致（多行取值按 {@link LineGrouper}
+ * 拆成段落和表格插入），只有以下有意的差别：</p>
+ * <ul>
+ *   <li>占位符之后的文字总是保留（静态流程在最后一个占位符前没有文字时会把它丢掉）；</li>
+ *   <li>表格单元格里的多行取值原样写进单元格，不再把段落 / 表格错插到文档末尾；</li>
+ *   <li>模版单元格没有 tcPr 时不再写出空的 tcPr，模版本身也不会被改写。</li>
+ * </ul>
+ */
+public final class WordTemplate {
+
+    private final List<Block> blocks;
+    private final Set<String> slotNames;
+
+    private WordTemplate(List<Block> blocks, Set<String> slotNames) {
+        this.blocks = blocks;
+        this.slotNames = slotNames;
+    }
+
+    public static WordTemplate compile(String templatePath) throws IOException {
+        try (FileInputStream fis = new FileInputStream(templatePath)) {
+            return compile(fis);
+        }
+    }
+
+    public static WordTemplate compile(InputStream template) throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        Set<String> slots = new LinkedHashSet<>();
+        try (XWPFDocument doc = new XWPFDocument(template)) {
+            for (IBodyElement element : doc.getBodyElements()) {
+                if (element instanceof XWPFParagraph) {
+                    XWPFParagraph para = (XWPFParagraph) element;
+                    Segments seg = Segments.parse(runText(para));
+                    if (seg.keys.length == 0) {
+                        blocks.add(new StaticParagraph(ParagraphFormat.of(para), ParagraphCopy.of(para)));
+                    } else {
+                        blocks.add(new SlotParagraph(ParagraphFormat.of(para), seg));
+                        Collections.addAll(slots, seg.keys);
+                    }
+                } else if (element instanceof XWPFTable) {
+                    blocks.add(TableBlock.of((XWPFTable) element, slots));
+                }
+            }
+        }
+        return new WordTemplate(Collections.unmodifiableList(blocks), Collections.unmodifiableSet(slots));
+    }
+
+    /**
+     * 模版中出现过的全部占位符名（按首次出现顺序）
+     */
+    public Set<String> slotNames() {
+        return slotNames;
+    }
+
+    /**
+     * 渲染出一份新文档，取值表中没有的占位符替换为空串。
+     * 取值耗时时可传入 {@link LazyValues}，并先用 {@code prefetch(slotNames(), executor)} 并发求值
+     */
+    public XWPFDocument render(Map<String, String> values) {
+        XWPFDocument out = new XWPFDocument();
+        for (Block b : blocks) {
+            b.render(out, values);
+        }
+        return out;
+    }
+
+    /**
+     * 渲染并写出
+     */
+    public void render(Map<String, String> values, OutputStream out) throws IOException {
+        try (XWPFDocument doc = render(values)) {
+            doc.write(out);
+        }
+    }
+
+    /**
+     * 渲染并流式写出：每渲染完一个块就刷出（{@link StreamingDocxWriter}），
+     * 适合取值里带有超大表格、结果文档极大的情况；不关闭 out。渲染中途出错时不写结尾，out 中不是完整的 docx
+     */
+    public void stream(Map<String, String> values, OutputStream out) throws IOException {
+        try (XWPFDocument doc = new XWPFDocument();
+             StreamingDocxWriter writer = new StreamingDocxWriter(doc, out)) {
+            for (Block b : blocks) {
+                b.render(doc, values);
+                writer.flush();
+            }
+            writer.finish();
+        }
+    }
+
+    // 收集段落中所有 run 的文本并合并（与静态流程相同，断开的 run 跳过）
+    static String runText(XWPFParagraph paragraph) {
+        StringBuilder sb = new StringBuilder();
+        for (XWPFRun run : paragraph.getRuns()) {
+            try {
+                String text = run.getText(0);
+                if (text != null) {
+                    sb.append(text);
+                }
+            } catch (Exception e) {
+                // 如果该 run 与底层 XML 断开，则跳过
+            }
+        }
+        return sb.toString();
+    }
+
+    // ────── 编译产物 ──────
+
+    private interface Block {
+        void render(XWPFDocument out, Map<String, String> values);
+    }
+
+    /**
+     * 段落文本按占位符切开：literals[i] 在 keys[i] 之前，literals 比 keys 多一个（末尾文字）
+     */
+    static final class Segments {
+        final String[] literals;
+        final String[] keys;
+
+        private Segments(String[] literals, String[] keys) {
+            this.literals = literals;
+            this.keys = keys;
+        }
+
+        static Segments parse(String text) {
+            List<String> literals = new ArrayList<>();
+            List<String> keys = new ArrayList<>();
+            Matcher m = WordPlaceholderWithFormat.PLACEHOLDER_PATTERN.matcher(text);
+            int last = 0;
+            while (m.find()) {
+                literals.add(text.substring(last, m.start()));
+                keys.add(m.group(1));
+                last = m.end();
+            }
+            literals.add(text.substring(last));
+            return new Segments(literals.toArray(new String[0]), keys.toArray(new String[0]));
+        }
+
+        static String value(Map<String, String> values, String key) {
+            String v = values.get(key);
+            return v != null ? v : "";
+        }
+    }
+
+    /**
+     * 没有占位符的段落：照搬格式与 run
+     */
+    private static final class StaticParagraph implements Block {
+        private final ParagraphFormat format;
+        private final ParagraphCopy copy;
+
+        StaticParagraph(ParagraphFormat format, ParagraphCopy copy) {
+            this.format = format;
+            this.copy = copy;
+        }
+
+        @Override
+        public void render(XWPFDocument out, Map<String, String> values) {
+            XWPFParagraph p = out.createParagraph();
+            format.applyTo(p);
+            copy.applyTo(p);
+        }
+    }
+
+    /**
+     * 带占位符的段落：文字段写成 run，取值按 insertReplacement 的规则插入
+     */
+    private static final class SlotParagraph implements Block {
+        private final ParagraphFormat format;
+        private final Segments seg;
+
+        SlotParagraph(ParagraphFormat format, Segments seg) {
+            this.format = format;
+            this.seg = seg;
+        }
+
+        @Override
+        public void render(XWPFDocument out, Map<String, String> values) {
+            XWPFParagraph p = out.createParagraph();
+            format.applyTo(p);
+            for (int i = 0; i < seg.keys.length; i++) {
+                if (!seg.literals[i].isEmpty()) {
+                    p.createRun().setText(seg.literals[i]);
+                }
+                WordPlaceholderWithFormat.insertReplacement(out, p, Segments.value(values, seg.keys[i]));
+            }
+            String tail = seg.literals[seg.keys.length];
+            if (!tail.isEmpty()) {
+                p.createRun().setText(tail);
+            }
+        }
+    }
+
+    /**
+     * 表格：属性照搬，单元格文本在渲染时拼出（各段落文本直接相连，与 XWPFTableCell.getText() 一致）
+     */
+    private static final class TableBlock implements Block {
+        private final CTTblPr tblPr;
+        private final CTTcPr[][] tcPr;
+        private final Segments[][][] cells;     // [行][列][段落]，无占位符的段落 keys 为空
+
+        private TableBlock(CTTblPr tblPr, CTTcPr[][] tcPr, Segments[][][] cells) {
+            this.tblPr = tblPr;
+            this.tcPr = tcPr;
+            this.cells = cells;
+        }
+
+        static TableBlock of(XWPFTable table, Set<String> slots) {
+            CTTblPr tblPr = table.getCTTbl().getTblPr();
+            List<XWPFTableRow> rows = table.getRows();
+            CTTcPr[][] tcPr = new CTTcPr[rows.size()][];
+            Segments[][][] cells = new Segments[rows.size()][][];
+            for (int r = 0; r < rows.size(); r++) {
+                List<XWPFTableCell> rowCells = rows.get(r).getTableCells();
+                tcPr[r] = new CTTcPr[rowCells.size()];
+                cells[r] = new Segments[rowCells.size()][];
+                for (int c = 0; c < rowCells.size(); c++) {
+                    XWPFTableCell cell = rowCells.get(c);
+                    CTTcPr pr = cell.getCTTc().getTcPr();
+                    tcPr[r][c] = pr == null ? null : (CTTcPr) pr.copy();   // 脱离模版文档的独立副本
+                    List<XWPFParagraph> paras = cell.getParagraphs();
+                    cells[r][c] = new Segments[paras.size()];
+                    for (int i = 0; i < paras.size(); i++) {
+                        XWPFParagraph p = paras.get(i);
+                        Segments seg = Segments.parse(runText(p));
+                        if (seg.keys.length == 0) {
+                            // 不含占位符的段落按 getText() 原样保留
+                            seg = new Segments(new String[]{p.getText()}, new String[0]);
+                        } else {
+                            Collections.addAll(slots, seg.keys);
+                        }
+                        cells[r][c][i] = seg;
+                    }
+                }
+            }
+            return new TableBlock(tblPr == null ? null : (CTTblPr) tblPr.copy(), tcPr, cells);
+        }
+
+        @Override
+        public void render(XWPFDocument out, Map<String, String> values) {
+            XWPFTable table = out.createTable();
+            table.removeRow(0);   // 后面逐行新增
+            if (tblPr != null) {
+                table.getCTTbl().setTblPr(tblPr);
+            }
+            StringBuilder text = new StringBuilder();
+            for (int r = 0; r < cells.length; r++) {
+                XWPFTableRow row = table.createRow();
+                for (int c = 0; c < cells[r].length; c++) {
+                    XWPFTableCell cell = row.getCell(c);
+                    if (cell == null) {
+                        cell = row.createCell();
+                    }
+                    if (tcPr[r][c] != null) {
+                        cell.getCTTc().setTcPr(tcPr[r][c]);
+                    }
+                    text.setLength(0);
+                    for (Segments seg : cells[r][c]) {
+                        for (int i = 0; i < seg.keys.length; i++) {
+                            text.append(seg.literals[i]).append(Segments.value(values, seg.keys[i]));
+                        }
+                        text.append(seg.literals[seg.keys.length]);
+                    }
+                    cell.setText(text.toString());
+                }
+            }
+        }
+    }
+
+    // ────── 格式快照，静态流程与编译模版共用 ──────
+
+    /**
+     * processParagraph 开头复制的段落级属性
+     */
+    static final class ParagraphFormat {
+        private final ParagraphAlignment alignment;
+        private final TextAlignment verticalAlignment;
+        private final Borders borderBetween;
+        private final Borders borderBottom;
+        private final Borders borderTop;
+        private final Borders borderLeft;
+        private final Borders borderRight;
+        private final int indentationFirstLine;
+        private final String style;
+
+        private ParagraphFormat(XWPFParagraph p) {
+            this.alignment = p.getAlignment();
+            this.verticalAlignment = p.getVerticalAlignment();
+            this.borderBetween = p.getBorderBetween();
+            this.borderBottom = p.getBorderBottom();
+            this.borderTop = p.getBorderTop();
+            this.borderLeft = p.getBorderLeft();
+            this.borderRight = p.getBorderRight();
+            this.indentationFirstLine = p.getIndentationFirstLine();
+            this.style = p.getStyle();
+        }
+
+        static ParagraphFormat of(XWPFParagraph p) {
+            return new ParagraphFormat(p);
+        }
+
+        void applyTo(XWPFParagraph p) {
+            p.setAlignment(alignment);
+            p.setVerticalAlignment(verticalAlignment);
+            p.setBorderBetween(borderBetween);
+            p.setBorderBottom(borderBottom);
+            p.setBorderTop(borderTop);
+            p.setBorderLeft(borderLeft);
+            p.setBorderRight(borderRight);
+            // 保留首行缩进
+            p.setIndentationFirstLine(indentationFirstLine);
+            // 保留段落样式，如标题样式
+            p.setStyle(style);
+        }
+    }
+
+    /**
+     * copyParagraph 复制的间距、缩进和逐个 run 的文字格式（相邻同格式的 run 已合并）
+     */
+    static final class ParagraphCopy {
+        private final ParagraphAlignment alignment;
+        private final int spacingBefore;
+        private final int spacingAfter;
+        private final int indentationLeft;
+        private final int indentationRight;
+        private final List<RunCopy> runs;
+
+        private ParagraphCopy(XWPFParagraph p) {
+            this.alignment = p.getAlignment();
+            this.spacingBefore = p.getSpacingBefore();
+            this.spacingAfter = p.getSpacingAfter();
+            this.indentationLeft = p.getIndentationLeft();
+            this.indentationRight = p.getIndentationRight();
+            List<RunCopy> list = new ArrayList<>(p.getRuns().size());
+            for (XWPFRun run : p.getRuns()) {
+                list.add(RunCopy.of(run));
+            }
+            this.runs = RunCopy.merge(list);
+        }
+
+        static ParagraphCopy of(XWPFParagraph p) {
+            return new ParagraphCopy(p);
+        }
+
+        void applyTo(XWPFParagraph p) {
+            p.setAlignment(alignment);
+            p.setSpacingBefore(spacingBefore);
+            p.setSpacingAfter(spacingAfter);
+            p.setIndentationLeft(indentationLeft);
+            p.setIndentationRight(indentationRight);
+            for (RunCopy run : runs) {
+                run.applyTo(p.createRun());
+            }
+        }
+    }
+
+    /**
+     * 一个 run 的文字和格式；相邻且格式相同的 run 可以合并成一个
+     */
+    static final class RunCopy {
+        private final String text;
+        private final RunFormat format;
+
+        private RunCopy(String text, RunFormat format) {
+            this.text = text;
+            this.format = format;
+        }
+
+        static RunCopy of(XWPFRun run) {
+            return new RunCopy(run.text(), RunFormat.of(run));
+        }
+
+        RunCopy withText(String text) {
+            return new RunCopy(text, format);
+        }
+
+        /**
+         * 合并相邻、格式相同的 run：拆开的 run 在只复制这几项格式后已无区别，合并后输出更小
+         */
+        static List<RunCopy> merge(List<RunCopy> runs) {
+            List<RunCopy> merged = new ArrayList<>(runs.size());
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < runs.size(); ) {
+                RunCopy first = runs.get(i);
+                int j = i + 1;
+                while (j < runs.size() && runs.get(j).format.equals(first.format)) j++;
+                if (j == i + 1) {
+                    merged.add(first);
+                } else {
+                    sb.setLength(0);
+                    for (int k = i; k < j; k++) sb.append(runs.get(k).text);
+                    merged.add(first.withText(sb.toString()));
+                }
+                i = j;
+            }
+            return merged;
+        }
+
+        void applyTo(XWPFRun r) {
+            applyTo(r, text);
+        }
+
+        /**
+         * 套用格式，文字换成 text；r 须是新建的 run
+         */
+        void applyTo(XWPFRun r, String text) {
+            r.setText(text);
+            format.applyTo(r);
+        }
+    }
+
+    /**
+     * 复制的文字格式：粗体、斜体、下划线、字号、字体、颜色，可作缓存键。
+     *
+     * <p>同一种格式只用 POI 的 setter 生成一次 rPr，之后每个新 run 整块复制这份 rPr，
+     * 结果与逐项 set 完全相同，但少了每项一次的查找和插入。XmlBeans 对象跨线程读并不安全，
+     * 缓存按线程各存一份。</p>
+     */
+    static final class RunFormat {
+        private static final int CACHE_LIMIT = 256;
+        private static final ThreadLocal<Map<RunFormat, CTRPr>> CACHE = new ThreadLocal<Map<RunFormat, CTRPr>>() {
+            @Override
+            protected Map<RunFormat, CTRPr> initialValue() {
+                return new HashMap<>();
+            }
+        };
+
+        private final boolean bold;
+        private final boolean italic;
+        private final UnderlinePatterns underline;
+        private final int fontSize;
+        private final String fontFamily;
+        private final String color;
+
+        private RunFormat(XWPFRun run) {
+            this.bold = run.isBold();
+            this.italic = run.isItalic();
+            this.underline = run.getUnderline();
+            // 字号为 null 时 Word 会显示错误，统一按 12 号处理
+            this.fontSize = run.getFontSizeAsDouble() != null ? run.getFontSize() : 12;
+            this.fontFamily = run.getFontFamily();
+            this.color = run.getColor();
+        }
+
+        static RunFormat of(XWPFRun run) {
+            return new RunFormat(run);
+        }
+
+        void applyTo(XWPFRun r) {
+            Map<RunFormat, CTRPr> cache = CACHE.get();
+            CTRPr pr = cache.get(this);
+            if (pr == null) {
+                if (cache.size() >= CACHE_LIMIT) {
+                    cache.clear();   // 格式种类异常多时不无限增长
+                }
+                XWPFRun scratch = new XWPFRun(CTR.Factory.newInstance(), (IRunBody) null);
+                set(scratch);
+                pr = scratch.getCTR().getRPr();
+                cache.put(this, pr);
+            }
+            r.getCTR().setRPr(pr);
+        }
+
+        private void set(XWPFRun r) {
+            r.setBold(bold);
+            r.setItalic(italic);
+            r.setUnderline(underline);
+            r.setFontSize(fontSize);
+            r.setFontFamily(fontFamily);
+            r.setColor(color);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RunFormat)) return false;
+            RunFormat f = (RunFormat) o;
+            return bold == f.bold && italic == f.italic && underline == f.underline && fontSize == f.fontSize
+                    && Objects.equals(fontFamily, f.fontFamily) && Objects.equals(color, f.color);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bold, italic, underline, fontSize, fontFamily, color);
+        }
+    }
+}
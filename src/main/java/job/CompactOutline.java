@@ -0,0 +1,344 @@
+package job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 紧凑版大纲树，适合长期在内存里保留成百上千棵树做跨报告查询。
+ *
+ * <p>与 {@link OutlineParser.Node} 相比：</p>
+ * <ul>
+ *   <li>按先序把节点编号为 0..n-1（0 为虚根），层级 / 父节点 / 首子 / 兄弟全部是基本类型数组；</li>
+ *   <li>标题和编号只存本级片段，并通过 {@link SegmentPool} 驻留，多棵树共用同一份字符串；</li>
+ *   <li>contentKey / fullNumberKey 不落地，只存其 hashCode，需要时沿父指针现拼；
+ *       按 key 查找时逐段比对，不生成中间字符串。</li>
+ * </ul>
+ * 查找结果和 extractSection 输出与原 Node 树一致（同名 key 取先序第一个）。构建后只读，可多线程共享。
+ */
+public final class CompactOutline {
+
+    /**
+     * 标题 / 编号片段驻留池，多棵树共用一个池才能真正省内存。线程安全。
+     */
+    public static final class SegmentPool {
+        private final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+
+        public String intern(String s) {
+            String prev = pool.putIfAbsent(s, s);
+            return prev != null ? prev : s;
+        }
+
+        public int size() {
+            return pool.size();
+        }
+    }
+
+    private static final int NONE = -1;
+
+    private final int size;
+    private final byte[] level;              // 层级不超过编号正则数，byte 足够
+    private final int[] parent;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final String[] title;
+    private final String[] rawNumber;
+    private final String[] numberKey;
+    private final int[] contentStart;        // 正文在 contents 中的区间 [contentStart[i], contentStart[i+1])
+    private final String[] contents;
+    private final int[] contentHash;         // contentKey.hashCode()
+    private final int[] numberHash;          // fullNumberKey.hashCode()
+    private final int[] contentTable;        // 开放寻址：节点下标 + 1，0 表示空
+    private final int[] numberTable;
+    // 极少数 key 无法由父子规则推出时（如手工改过的树），原样保存
+    private final Map<Integer, String> contentKeyOverride;
+    private final Map<Integer, String> numberKeyOverride;
+
+    private CompactOutline(int size, int contentCount) {
+        this.size = size;
+        this.level = new byte[size];
+        this.parent = new int[size];
+        this.firstChild = new int[size];
+        this.nextSibling = new int[size];
+        this.title = new String[size];
+        this.rawNumber = new String[size];
+        this.numberKey = new String[size];
+        this.contentStart = new int[size + 1];
+        this.contents = new String[contentCount];
+        this.contentHash = new int[size];
+        this.numberHash = new int[size];
+        int cap = 4;
+        while (cap < size * 2) cap <<= 1;      // 负载因子 ≤ 0.5
+        this.contentTable = new int[cap];
+        this.numberTable = new int[cap];
+        this.contentKeyOverride = new HashMap<>(0);
+        this.numberKeyOverride = new HashMap<>(0);
+    }
+
+    /**
+     * 由 Node 树构建，片段只在本树内去重
+     */
+    public static CompactOutline of(OutlineParser.Node root) {
+        return of(root, new SegmentPool());
+    }
+
+    /**
+     * 由 Node 树构建，片段驻留到给定的池（多棵树请共用同一个池）
+     */
+    public static CompactOutline of(OutlineParser.Node root, SegmentPool pool) {
+        List<OutlineParser.Node> order = new ArrayList<>();
+        int contentCount = flatten(root, order);
+
+        CompactOutline c = new CompactOutline(order.size(), contentCount);
+        Map<OutlineParser.Node, Integer> ids = new HashMap<>(order.size() * 4 / 3 + 1);
+        Map<String, Boolean> seenContent = new HashMap<>();
+        Map<String, Boolean> seenNumber = new HashMap<>();
+
+        int ci = 0;
+        for (int i = 0; i < order.size(); i++) {
+            OutlineParser.Node n = order.get(i);
+            ids.put(n, i);
+            c.level[i] = (byte) n.level;
+            c.title[i] = pool.intern(n.title);
+            c.rawNumber[i] = pool.intern(n.rawNumber);
+            c.numberKey[i] = n.numberKey.equals(n.rawNumber) ? c.rawNumber[i] : pool.intern(n.numberKey);
+            c.firstChild[i] = NONE;
+            c.nextSibling[i] = NONE;
+            c.contentStart[i] = ci;
+            for (String para : n.contents) c.contents[ci++] = para;
+        }
+        c.contentStart[order.size()] = ci;
+
+        for (int i = 0; i < order.size(); i++) {
+            OutlineParser.Node n = order.get(i);
+            int prev = NONE;
+            for (OutlineParser.Node ch : n.children) {
+                int j = ids.get(ch);
+                c.parent[j] = i;
+                if (prev == NONE) c.firstChild[i] = j;
+                else c.nextSibling[prev] = j;
+                prev = j;
+            }
+        }
+        c.parent[0] = NONE;
+
+        for (int i = 0; i < order.size(); i++) {
+            OutlineParser.Node n = order.get(i);
+            // 能由规则推出的 key 不保存；推不出的记到 override 里，保证与原树一致
+            if (!n.contentKey.equals(c.deriveContentKey(i))) c.contentKeyOverride.put(i, n.contentKey);
+            if (!n.fullNumberKey.equals(c.deriveFullNumberKey(i))) c.numberKeyOverride.put(i, n.fullNumberKey);
+
+            c.contentHash[i] = n.contentKey.hashCode();
+            c.numberHash[i] = n.fullNumberKey.hashCode();
+            // 先序插入，同名只保留第一个
+            if (seenContent.put(n.contentKey, Boolean.TRUE) == null) insert(c.contentTable, c.contentHash[i], i);
+            if (seenNumber.put(n.fullNumberKey, Boolean.TRUE) == null) insert(c.numberTable, c.numberHash[i], i);
+        }
+        return c;
+    }
+
+    private static int flatten(OutlineParser.Node node, List<OutlineParser.Node> out) {
+        out.add(node);
+        int count = node.contents.size();
+        for (OutlineParser.Node ch : node.children) count += flatten(ch, out);
+        return count;
+    }
+
+    private static void insert(int[] table, int hash, int node) {
+        int mask = table.length - 1;
+        int i = spread(hash) & mask;
+        while (table[i] != 0) i = (i + 1) & mask;
+        table[i] = node + 1;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    // ────── 基本访问 ──────
+
+    public int size() {
+        return size;
+    }
+
+    public int root() {
+        return 0;
+    }
+
+    public int level(int node) {
+        return level[node];
+    }
+
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    /** 第一个子节点，没有时返回 -1 */
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    /** 下一个兄弟节点，没有时返回 -1 */
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    public String title(int node) {
+        return title[node];
+    }
+
+    public String rawNumber(int node) {
+        return rawNumber[node];
+    }
+
+    public String numberKey(int node) {
+        return numberKey[node];
+    }
+
+    public List<String> contents(int node) {
+        return Collections.unmodifiableList(
+                Arrays.asList(contents).subList(contentStart[node], contentStart[node + 1]));
+    }
+
+    /**
+     * 现拼 contentKey（不缓存）
+     */
+    public String contentKey(int node) {
+        String o = contentKeyOverride.isEmpty() ? null : contentKeyOverride.get(node);
+        return o != null ? o : deriveContentKey(node);
+    }
+
+    /**
+     * 现拼 fullNumberKey（不缓存）
+     */
+    public String fullNumberKey(int node) {
+        String o = numberKeyOverride.isEmpty() ? null : numberKeyOverride.get(node);
+        return o != null ? o : deriveFullNumberKey(node);
+    }
+
+    // 与 OutlineParser.createNode 同规则
+    private String deriveContentKey(int node) {
+        if (node == 0) return "";
+        int p = parent[node];
+        if (level[p] == 0) return title[node];
+        return contentKey(p) + "-" + title[node];
+    }
+
+    // 与 OutlineParser.rebuildFullKeys 同规则
+    private String deriveFullNumberKey(int node) {
+        if (node == 0) return "";
+        String parentKey = fullNumberKey(parent[node]);
+        return parentKey.isEmpty() ? numberKey[node] : parentKey + "-" + numberKey[node];
+    }
+
+    // ────── 查找 ──────
+
+    /**
+     * @return 节点下标，未找到返回 -1
+     */
+    public int findByContentKey(String key) {
+        int h = key.hashCode();
+        int mask = contentTable.length - 1;
+        for (int i = spread(h) & mask; contentTable[i] != 0; i = (i + 1) & mask) {
+            int node = contentTable[i] - 1;
+            if (contentHash[node] == h && contentKeyEndsAt(node, key, key.length())) return node;
+        }
+        return NONE;
+    }
+
+    /**
+     * @return 节点下标，未找到返回 -1
+     */
+    public int findByFullNumberKey(String key) {
+        int h = key.hashCode();
+        int mask = numberTable.length - 1;
+        for (int i = spread(h) & mask; numberTable[i] != 0; i = (i + 1) & mask) {
+            int node = numberTable[i] - 1;
+            if (numberHash[node] == h && numberKeyEndsAt(node, key, key.length())) return node;
+        }
+        return NONE;
+    }
+
+    /**
+     * 判断 node 的 contentKey 是否恰好等于 key[0, end)，从末段往上逐段比对
+     */
+    private boolean contentKeyEndsAt(int node, String key, int end) {
+        String o = contentKeyOverride.isEmpty() ? null : contentKeyOverride.get(node);
+        if (o != null) return o.length() == end && key.startsWith(o);
+        if (node == 0) return end == 0;
+
+        String seg = title[node];
+        int start = end - seg.length();
+        if (start < 0 || !key.regionMatches(start, seg, 0, seg.length())) return false;
+        int p = parent[node];
+        if (level[p] == 0) return start == 0;
+        return start > 0 && key.charAt(start - 1) == '-' && contentKeyEndsAt(p, key, start - 1);
+    }
+
+    private boolean numberKeyEndsAt(int node, String key, int end) {
+        String o = numberKeyOverride.isEmpty() ? null : numberKeyOverride.get(node);
+        if (o != null) return o.length() == end && key.startsWith(o);
+        if (node == 0) return end == 0;
+
+        String seg = numberKey[node];
+        int start = end - seg.length();
+        if (start < 0 || !key.regionMatches(start, seg, 0, seg.length())) return false;
+        int p = parent[node];
+        // 父级 fullNumberKey 为空时本级不带 "-"
+        if (fullNumberKeyIsEmpty(p)) return start == 0;
+        return start > 0 && key.charAt(start - 1) == '-' && numberKeyEndsAt(p, key, start - 1);
+    }
+
+    private boolean fullNumberKeyIsEmpty(int node) {
+        String o = numberKeyOverride.isEmpty() ? null : numberKeyOverride.get(node);
+        if (o != null) return o.isEmpty();
+        if (node == 0) return true;
+        return numberKey[node].isEmpty() && fullNumberKeyIsEmpty(parent[node]);
+    }
+
+    // ────── 提取 ──────
+
+    /**
+     * 与 {@link OutlineParser#extractSection} 输出一致
+     */
+    public List<String> extractSection(String contentKey) {
+        return collectSection(findByContentKey(contentKey));
+    }
+
+    /**
+     * 与 {@link OutlineParser#extractSectionByNumber} 输出一致
+     */
+    public List<String> extractSectionByNumber(String fullNumberKey) {
+        return collectSection(findByFullNumberKey(fullNumberKey));
+    }
+
+    private List<String> collectSection(int target) {
+        if (target == NONE) return Collections.emptyList();
+        List<String> lines = new ArrayList<>();
+        buildLines(target, 0, lines);
+        return lines;
+    }
+
+    private void buildLines(int node, int indentLv, List<String> out) {
+        if (level[node] != 0) {             // 虚根除外
+            String indent = repeat("    ", indentLv);   // 4 空格 / 级
+            out.add(indent + rawNumber[node] + " " + title[node]);
+            for (int i = contentStart[node]; i < contentStart[node + 1]; i++) {
+                out.add(indent + "    " + contents[i]);        // 正文再缩一层
+            }
+        }
+        for (int ch = firstChild[node]; ch != NONE; ch = nextSibling[ch]) {
+            buildLines(ch, indentLv + 1, out);
+        }
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder(s.length() * times);
+        for (int i = 0; i < times; i++) sb.append(s);
+        return sb.toString();
+    }
+}
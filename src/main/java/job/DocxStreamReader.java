@@ -0,0 +1,406 @@
+package job;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 流式读取 docx 正文：直接从 zip 中拉取 <code>word/document.xml</code>，用 StAX 逐个事件解析，
+ * 不构建 XWPFDocument DOM，内存占用与文档大小基本无关。
+ *
+ * <p>只关心 <code>w:body</code> 的直接子元素（与 <code>XWPFDocument.getBodyElements()</code> 的
+ * 段落 / 表格一致）：</p>
+ * <ul>
+ *   <li>段落：拼接 <code>w:t</code>，run 内的 <code>w:tab</code> → \t，<code>w:br</code>/<code>w:cr</code> → \n，
+ *       与 <code>XWPFParagraph.getText()</code> 对齐（删除修订 <code>w:delText</code>、域代码
+ *       <code>w:instrText</code> 天然不会被收集）。</li>
+ *   <li>脚注 / 尾注引用：与 DOM 版一样，引用处输出 <code>[footnoteRef:id]</code> / <code>[endnoteRef:id]</code>，
+ *       段落末尾追加 <code>" [id: 脚注文本] "</code>；脚注文本事先从 <code>word/footnotes.xml</code>、
+ *       <code>word/endnotes.xml</code> 读出（按 id 存一份，通常很小）。直接读 document.xml 流时拿不到这两个部件，
+ *       只输出引用标记，不追加脚注文本；脚注内部再引用脚注时也只输出标记。</li>
+ *   <li>表格：交给 {@link TableFlattener} 按同一规则展开 gridSpan / vMerge，
+ *       嵌套表格与文本框内容与 DOM 版一样忽略。</li>
+ * </ul>
+ * 兼容 Java 8。
+ */
+public class DocxStreamReader {
+
+    private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String DOCUMENT_XML = "word/document.xml";
+    private static final String FOOTNOTES_XML = "word/footnotes.xml";
+    private static final String ENDNOTES_XML = "word/endnotes.xml";
+
+    /**
+     * 正文元素回调：按文档顺序依次触发。
+     */
+    public interface BodyHandler {
+        /** 顶层段落，text 未 trim */
+        void onParagraph(String text);
+
+        /** 顶层表格，已序列化为“| cell | … |”行 */
+        void onTable(String markdown);
+    }
+
+    /**
+     * 表格按行回调的正文回调：表格不会拼成整串，每铺平一行就回调一次，适合上万行的附表。
+     */
+    public interface RowBodyHandler {
+        /** 顶层段落，text 未 trim */
+        void onParagraph(String text) throws IOException;
+
+        void onTableStart() throws IOException;
+
+        /** 一行“| cell | … |”，不含换行；row 是复用缓冲，只在回调期间有效 */
+        void onTableRow(CharSequence row) throws IOException;
+
+        void onTableEnd() throws IOException;
+    }
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        // docx 不需要 DTD，顺手关掉外部实体
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+    }
+
+    /**
+     * 读取目标 docx 的正文，按顺序回调段落和表格
+     *
+     * @param filePath docx 路径
+     * @param handler  回调
+     * @throws IOException 文件不可读或 XML 损坏
+     */
+    public static void read(String filePath, BodyHandler handler) throws IOException {
+        read(filePath, new Walker(handler, null));
+    }
+
+    /**
+     * 读取目标 docx 的正文，段落整段回调，表格逐行回调
+     */
+    public static void read(String filePath, RowBodyHandler handler) throws IOException {
+        read(filePath, new Walker(null, handler));
+    }
+
+    /**
+     * 直接从 document.xml 流读取
+     */
+    public static void read(InputStream documentXml, BodyHandler handler) throws IOException {
+        read(documentXml, new Walker(handler, null));
+    }
+
+    /**
+     * 直接从 document.xml 流读取，表格逐行回调
+     */
+    public static void read(InputStream documentXml, RowBodyHandler handler) throws IOException {
+        read(documentXml, new Walker(null, handler));
+    }
+
+    private static void read(String filePath, Walker walker) throws IOException {
+        try (ZipFile zip = new ZipFile(filePath)) {
+            ZipEntry entry = zip.getEntry(DOCUMENT_XML);
+            if (entry == null) {
+                throw new IOException("不是有效的 docx，缺少 " + DOCUMENT_XML + "：" + filePath);
+            }
+            walker.footnotes = readNotes(zip, FOOTNOTES_XML, "footnote");
+            walker.endnotes = readNotes(zip, ENDNOTES_XML, "endnote");
+            try (InputStream in = zip.getInputStream(entry)) {
+                read(in, walker, DOCUMENT_XML);
+            }
+        }
+    }
+
+    // 脚注 / 尾注部件：id → 各段落文本以 \n 连接（同 XWPFParagraph 拼接脚注的方式）；没有该部件时为空表
+    private static Map<String, String> readNotes(ZipFile zip, String part, String element) throws IOException {
+        Map<String, String> notes = new HashMap<>();
+        ZipEntry entry = zip.getEntry(part);
+        if (entry != null) {
+            try (InputStream in = zip.getInputStream(entry)) {
+                read(in, new Walker(element, notes), part);
+            }
+        }
+        return notes;
+    }
+
+    private static void read(InputStream documentXml, Walker walker) throws IOException {
+        read(documentXml, walker, DOCUMENT_XML);
+    }
+
+    private static void read(InputStream xml, Walker walker, String part) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = FACTORY.createXMLStreamReader(xml);
+            walker.walk(reader);
+        } catch (XMLStreamException e) {
+            throw new IOException("解析 " + part + " 失败：" + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignore) {
+                    // 关闭失败不影响结果
+                }
+            }
+        }
+    }
+
+    /**
+     * 单次解析的状态机。所有状态都靠元素深度判定，只保留当前段落 / 当前表格的少量缓冲。
+     */
+    private static class Walker {
+        private final BodyHandler handler;         // 整表回调，与 rowHandler 二选一
+        private final RowBodyHandler rowHandler;   // 逐行回调
+        private final TableFlattener.RowHandler rowSink;
+
+        // 正文容器元素："body"；读脚注 / 尾注部件时是每条 "footnote" / "endnote"
+        private final String container;
+        private final Map<String, String> noteSink;   // 读脚注 / 尾注部件时收集 id → 文本，否则为 null
+        private String noteId;
+        private final StringBuilder noteText = new StringBuilder();
+        private int noteParagraphs;
+
+        // 读正文时引用的脚注 / 尾注；为 null 表示没有读到这两个部件（只有 document.xml 流）
+        private Map<String, String> footnotes;
+        private Map<String, String> endnotes;
+        private final StringBuilder footnoteText = new StringBuilder();   // 本段引用的脚注文本，段末追加
+
+        private int depth = 0;
+        private int bodyDepth = -1;        // w:body（或当前脚注 / 尾注）所在深度
+        private int paraDepth = -1;        // 正在收集文本的 w:p 深度
+        private int runDepth = -1;         // 当前 w:r 深度；制表、换行只在 run 内才是文本（pPr/tabs 下的 w:tab 是制表位定义）
+        private int skipDepth = -1;        // 需要整体跳过的子树（嵌套表格 / 文本框段落）
+        private boolean inText = false;    // 当前位于 w:t 内
+        private final StringBuilder text = new StringBuilder();
+
+        // ---- 表格状态 ----
+        private int tblDepth = -1;
+        private int tcDepth = -1;
+        private final TableFlattener table = new TableFlattener();
+        private final StringBuilder cellText = new StringBuilder();
+        private int gridSpan;
+        private boolean vRestart;
+        private boolean vContinue;
+
+        Walker(BodyHandler handler, final RowBodyHandler rowHandler) {
+            this.handler = handler;
+            this.rowHandler = rowHandler;
+            this.container = "body";
+            this.noteSink = null;
+            this.rowSink = rowHandler == null ? null : new TableFlattener.RowHandler() {
+                @Override
+                public void onRow(CharSequence row) throws IOException {
+                    rowHandler.onTableRow(row);
+                }
+            };
+        }
+
+        // 读脚注 / 尾注部件：只收集每条的顶层段落，表格跳过（XWPFFootnote.getParagraphs() 也不含表格内段落）
+        Walker(String noteElement, Map<String, String> noteSink) {
+            this.handler = null;
+            this.rowHandler = null;
+            this.rowSink = null;
+            this.container = noteElement;
+            this.noteSink = noteSink;
+        }
+
+        void walk(XMLStreamReader r) throws XMLStreamException, IOException {
+            while (r.hasNext()) {
+                int event = r.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (skipDepth < 0) startElement(r);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (skipDepth < 0) {
+                        endElement(r);
+                    } else if (depth == skipDepth) {
+                        skipDepth = -1;
+                    }
+                    depth--;
+                } else if ((event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)
+                        && inText && skipDepth < 0) {
+                    text.append(r.getTextCharacters(), r.getTextStart(), r.getTextLength());
+                }
+            }
+        }
+
+        private void startElement(XMLStreamReader r) throws IOException {
+            if (!W_NS.equals(r.getNamespaceURI())) return;
+            String name = r.getLocalName();
+
+            if (bodyDepth < 0) {
+                if (container.equals(name)) {
+                    bodyDepth = depth;
+                    if (noteSink != null) {
+                        noteId = r.getAttributeValue(W_NS, "id");
+                        noteText.setLength(0);
+                        noteParagraphs = 0;
+                    }
+                }
+                return;
+            }
+
+            if (paraDepth >= 0) {
+                // 段落内部
+                switch (name) {
+                    case "r":
+                        runDepth = depth;
+                        break;
+                    case "t":
+                        inText = true;
+                        break;
+                    case "tab":
+                    case "ptab":
+                        if (runDepth >= 0) text.append('\t');
+                        break;
+                    case "br":
+                    case "cr":
+                        if (runDepth >= 0) text.append('\n');
+                        break;
+                    case "footnoteReference":
+                    case "endnoteReference":
+                        if (runDepth >= 0) noteReference(r, "footnoteReference".equals(name));
+                        break;
+                    case "p":
+                    case "tbl":
+                    case "txbxContent":
+                        skipDepth = depth;  // 文本框等嵌套内容，DOM 版 getText() 也不计入
+                        break;
+                    default:
+                        break;
+                }
+                return;
+            }
+
+            if (tblDepth < 0) {
+                // 正文顶层
+                if (depth == bodyDepth + 1) {
+                    if ("p".equals(name)) {
+                        beginParagraph();
+                    } else if ("tbl".equals(name) && noteSink != null) {
+                        skipDepth = depth;
+                    } else if ("tbl".equals(name)) {
+                        tblDepth = depth;
+                        if (rowHandler != null) rowHandler.onTableStart();
+                        table.reset(rowSink);
+                    }
+                }
+                return;
+            }
+
+            // 表格内部
+            if (depth == tblDepth + 2) {
+                if ("tc".equals(name)) {
+                    tcDepth = depth;
+                    cellText.setLength(0);
+                    gridSpan = 1;
+                    vRestart = false;
+                    vContinue = false;
+                }
+            } else if (tcDepth >= 0 && depth == tcDepth + 1) {
+                if ("p".equals(name)) {
+                    beginParagraph();
+                } else if ("tbl".equals(name)) {
+                    skipDepth = depth;      // 嵌套表格：XWPFTableCell.getText() 不包含
+                }
+            } else if (tcDepth >= 0 && depth == tcDepth + 2) {
+                // w:tc/w:tcPr/*
+                if ("gridSpan".equals(name)) {
+                    String val = r.getAttributeValue(W_NS, "val");
+                    if (val != null) {
+                        try {
+                            gridSpan = Integer.parseInt(val.trim());
+                        } catch (NumberFormatException ignore) {
+                            gridSpan = 1;
+                        }
+                    }
+                } else if ("vMerge".equals(name)) {
+                    String val = r.getAttributeValue(W_NS, "val");
+                    if ("restart".equalsIgnoreCase(val)) {
+                        vRestart = true;           // 垂直合并起始行
+                    } else {                      // 包括 "continue" 或无 val
+                        vContinue = true;         // 垂直合并延续行
+                    }
+                }
+            }
+        }
+
+        private void endElement(XMLStreamReader r) throws IOException {
+            if (!W_NS.equals(r.getNamespaceURI())) return;
+            String name = r.getLocalName();
+
+            if (paraDepth >= 0) {
+                if ("t".equals(name)) {
+                    inText = false;
+                } else if (depth == runDepth && "r".equals(name)) {
+                    runDepth = -1;
+                } else if (depth == paraDepth && "p".equals(name)) {
+                    paraDepth = -1;
+                    text.append(footnoteText);
+                    if (noteSink != null) {
+                        if (noteParagraphs++ > 0) noteText.append('\n');
+                        noteText.append(text);
+                    } else if (tcDepth >= 0) {
+                        cellText.append(text);           // 单元格内段落直接拼接，与 getText() 一致
+                    } else if (rowHandler != null) {
+                        rowHandler.onParagraph(text.toString());
+                    } else {
+                        handler.onParagraph(text.toString());
+                    }
+                }
+                return;
+            }
+
+            if (noteSink != null && depth == bodyDepth && container.equals(name)) {
+                noteSink.put(noteId, noteText.toString());
+                bodyDepth = -1;
+                return;
+            }
+
+            if (tblDepth < 0) return;
+
+            if (depth == tcDepth && "tc".equals(name)) {
+                table.cell(cellText, vRestart, vContinue, gridSpan);
+                tcDepth = -1;
+            } else if (depth == tblDepth + 1 && "tr".equals(name)) {
+                table.endRow();
+            } else if (depth == tblDepth && "tbl".equals(name)) {
+                tblDepth = -1;
+                if (rowHandler != null) {
+                    rowHandler.onTableEnd();
+                } else {
+                    handler.onTable(table.result());
+                }
+            }
+        }
+
+        private void beginParagraph() {
+            paraDepth = depth;
+            runDepth = -1;
+            inText = false;
+            text.setLength(0);
+            footnoteText.setLength(0);
+        }
+
+        // 与 XWPFRun / XWPFParagraph 的输出相同：引用处写标记，脚注文本攒到段末
+        private void noteReference(XMLStreamReader r, boolean footnote) {
+            String id = r.getAttributeValue(W_NS, "id");
+            text.append(footnote ? "[footnoteRef:" : "[endnoteRef:").append(id).append(']');
+            Map<String, String> notes = footnote ? footnotes : endnotes;
+            if (notes == null) {
+                return;
+            }
+            String note = notes.get(id);
+            footnoteText.append(" [").append(id).append(": ")
+                    .append(note != null ? note : "!!! End note with ID \"" + id + "\" not found in document.")
+                    .append("] ");
+        }
+    }
+}
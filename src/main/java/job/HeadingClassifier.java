@@ -0,0 +1,181 @@
+package job;
+
+/**
+ * 默认四级编号（一、 / （一） / 1. / （1））的逐字符识别器，用来替代 PATTERNS 逐级正则匹配。
+ *
+ * <p>一次扫描同时给出层级和编号 / 标题的下标边界，不创建 Matcher，也不切 group 字符串；
+ * 结果写进调用方复用的 {@link Match} 对象。语义与默认正则的 find()（或 matches()）完全一致：</p>
+ * <pre>
+ * 一级：  ^([一二三四五六七八九十]+)、\s*(.+)$
+ * 二级：  ^（([一二三四五六七八九十]+)）\s*(.+)$
+ * 三级：  ^([0-9]+)\.\s*(.+)$
+ * 四级：  ^（([0-9]+)）\s*(.+)$
+ * </pre>
+ * 自定义 PATTERNS 时不走这里，仍然用正则。
+ */
+final class HeadingClassifier {
+
+    /**
+     * 一次识别的结果，可跨行复用。level == 0 表示正文。
+     */
+    static final class Match {
+        int level;          // 1..4，0 = 未命中
+        int numStart;       // group(1) 起点
+        int numEnd;         // group(1) 终点（不含）
+        int markerEnd;      // 编号连同符号（、 ）. ）的终点，即 rawNumber 的长度
+        int titleStart;     // group(2).trim() 的起点
+        int titleEnd;       // group(2).trim() 的终点（不含）
+
+        void reset() {
+            level = 0;
+            numStart = numEnd = markerEnd = titleStart = titleEnd = 0;
+        }
+    }
+
+    private HeadingClassifier() {
+    }
+
+    /**
+     * 按一级 → 四级的顺序识别，等价于依次 PATTERNS.get(i).matcher(line).find()
+     *
+     * @return 命中的层级，0 表示正文
+     */
+    static int classify(CharSequence line, Match out) {
+        return classify(line, out, 4, false);
+    }
+
+    /**
+     * 只判定一级标题，等价于 PATTERNS.get(0).matcher(line).matches()
+     */
+    static boolean matchesFirstLevel(CharSequence line, Match out) {
+        return classify(line, out, 1, true) == 1;
+    }
+
+    /**
+     * @param maxLevel  最多尝试到第几级
+     * @param fullMatch true 对应 matches()，false 对应 find()
+     */
+    static int classify(CharSequence s, Match out, int maxLevel, boolean fullMatch) {
+        out.reset();
+        int n = s.length();
+        if (n == 0) return 0;
+
+        char first = s.charAt(0);
+        if (isChineseDigit(first)) {
+            // 一级：一、
+            int i = skipChineseDigits(s, 0, n);
+            if (i < n && s.charAt(i) == '、' && tail(s, i + 1, n, fullMatch, out)) {
+                return hit(out, 1, 0, i, i + 1);
+            }
+        } else if (first == '（') {
+            if (n > 1 && isChineseDigit(s.charAt(1))) {
+                // 二级：（一）
+                int i = skipChineseDigits(s, 1, n);
+                if (maxLevel >= 2 && i < n && s.charAt(i) == '）' && tail(s, i + 1, n, fullMatch, out)) {
+                    return hit(out, 2, 1, i, i + 1);
+                }
+            } else if (n > 1 && isAsciiDigit(s.charAt(1))) {
+                // 四级：（1）
+                int i = skipAsciiDigits(s, 1, n);
+                if (maxLevel >= 4 && i < n && s.charAt(i) == '）' && tail(s, i + 1, n, fullMatch, out)) {
+                    return hit(out, 4, 1, i, i + 1);
+                }
+            }
+        } else if (isAsciiDigit(first)) {
+            // 三级：1.
+            int i = skipAsciiDigits(s, 0, n);
+            if (maxLevel >= 3 && i < n && s.charAt(i) == '.' && tail(s, i + 1, n, fullMatch, out)) {
+                return hit(out, 3, 0, i, i + 1);
+            }
+        }
+        out.reset();
+        return 0;
+    }
+
+    private static int hit(Match out, int level, int numStart, int numEnd, int markerEnd) {
+        out.level = level;
+        out.numStart = numStart;
+        out.numEnd = numEnd;
+        out.markerEnd = markerEnd;
+        return level;
+    }
+
+    /**
+     * 模拟 "\s*(.+)$"：贪婪吃掉空白，再要求至少一个非换行字符一直延伸到结尾
+     * （find() 时允许结尾处留一个行终止符，与正则的 $ 一致）。命中时写入去掉首尾空白后的标题边界。
+     */
+    private static boolean tail(CharSequence s, int p, int n, boolean fullMatch, Match out) {
+        int q = p;
+        while (q < n && isRegexSpace(s.charAt(q))) q++;
+
+        // \s* 贪婪，失败时逐个吐回空白给 (.+)
+        for (int k = q; k >= p; k--) {
+            int m = k;
+            while (m < n && !isLineTerminator(s.charAt(m))) m++;
+            if (m > k && dollarAt(s, m, n, fullMatch)) {
+                int ts = k, te = m;
+                while (ts < te && s.charAt(ts) <= ' ') ts++;
+                while (te > ts && s.charAt(te - 1) <= ' ') te--;
+                out.titleStart = ts;
+                out.titleEnd = te;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 非 MULTILINE 模式下 $ 能否在 i 处命中
+     */
+    private static boolean dollarAt(CharSequence s, int i, int n, boolean fullMatch) {
+        if (i == n) return true;
+        if (fullMatch) return false;               // matches() 要求吃到末尾
+        char c = s.charAt(i);
+        if (c == '\r') {
+            return i == n - 1 || (i == n - 2 && s.charAt(i + 1) == '\n');
+        }
+        return i == n - 1;                         // 单个结尾行终止符（\n 前的 \r 在上面已处理）
+    }
+
+    private static int skipChineseDigits(CharSequence s, int i, int n) {
+        while (i < n && isChineseDigit(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static int skipAsciiDigits(CharSequence s, int i, int n) {
+        while (i < n && isAsciiDigit(s.charAt(i))) i++;
+        return i;
+    }
+
+    static boolean isChineseDigit(char c) {
+        switch (c) {
+            case '一':
+            case '二':
+            case '三':
+            case '四':
+            case '五':
+            case '六':
+            case '七':
+            case '八':
+            case '九':
+            case '十':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // 正则 \s：[ \t\n\x0B\f\r]
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // 正则 . 不匹配的字符
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
@@ -0,0 +1,199 @@
+package job;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 同一份报告反复编辑、反复保存时的增量解析。
+ *
+ * <p>按一级标题把行序列切成若干段（第 0 段是第一个一级标题之前的部分），每段记录起始行、
+ * 在虚根 children 中的起点，以及进入该段前的 currents 快照。{@link #update} 时：</p>
+ * <ol>
+ *   <li>用段落哈希比对新旧行序列，求出公共前缀和公共后缀；</li>
+ *   <li>从第一处改动所在的段开始，用该段的快照接着解析；</li>
+ *   <li>进入未改动的后缀后，一旦某行恰好落在旧段起点、仍是一级标题且补编号后的文本不变，
+ *       后面的状态必然与旧树相同，直接把旧子树原样接回。</li>
+ * </ol>
+ * 结果与对新行序列整篇 {@link OutlineEngine#parse} 完全一致。
+ * 树是原地修改的：{@link #root()} 始终返回同一个虚根。单线程使用。
+ */
+public final class IncrementalOutline {
+
+    /**
+     * 以一级标题为界的一段
+     */
+    private static final class Segment {
+        final int startLine;
+        final int childStart;                 // 本段第一个节点在虚根 children 中的下标
+        final String head;                    // 段首一级标题补编号后的文本，第 0 段为 null
+        final OutlineParser.Node[] entry;     // 进入本段前的 currents，第 0 段为 null
+
+        Segment(int startLine, int childStart, String head, OutlineParser.Node[] entry) {
+            this.startLine = startLine;
+            this.childStart = childStart;
+            this.head = head;
+            this.entry = entry;
+        }
+    }
+
+    private static final String[] NO_LINES = new String[0];
+
+    private final OutlineEngine engine;
+    private final TemplateNumberIndex numIndex;
+
+    private String[] lines = NO_LINES;
+    private int[] hashes = new int[0];
+    private OutlineParser.Node root;
+    private List<Segment> segments;
+    private int lastReparsedLines;
+
+    public IncrementalOutline(OutlineEngine engine, TemplateNumberIndex numIndex) {
+        if (engine == null || numIndex == null) {
+            throw new IllegalArgumentException("engine / numIndex 不能为 null");
+        }
+        this.engine = engine;
+        this.numIndex = numIndex;
+    }
+
+    public IncrementalOutline(OutlineEngine engine, Map<String, String> numMap) {
+        this(engine, TemplateNumberIndex.of(numMap));
+    }
+
+    /**
+     * 使用 OutlineParser 当前的默认引擎
+     */
+    public IncrementalOutline(Map<String, String> numMap) {
+        this(OutlineParser.defaultEngine(), numMap);
+    }
+
+    /**
+     * 当前树的虚根；尚未解析过时为 null
+     */
+    public OutlineParser.Node root() {
+        return root;
+    }
+
+    /**
+     * 最近一次 update 实际重新解析的行数（接回的旧子树不计）
+     */
+    public int lastReparsedLines() {
+        return lastReparsedLines;
+    }
+
+    /**
+     * 重新抽取文档并增量更新。抽取仍是整篇流式读取，增量的是建树部分。
+     */
+    public OutlineParser.Node updateFromFile(String filePath) throws IOException {
+        return update(engine.extractWordStreaming(filePath));
+    }
+
+    /**
+     * 用新的行序列更新大纲树，首次调用等价于整篇解析
+     */
+    public OutlineParser.Node update(List<String> newLines) {
+        String[] nl = newLines.toArray(NO_LINES);
+        int[] nh = new int[nl.length];
+        for (int i = 0; i < nl.length; i++) nh[i] = nl[i].hashCode();
+
+        if (root == null) {
+            root = new OutlineParser.Node(0, "", "ROOT", "", "", "");   // 虚根
+            segments = new ArrayList<>();
+            segments.add(new Segment(0, 0, null, null));
+            reparse(nl, 0, 0, 0);
+        } else {
+            int n = nl.length, m = lines.length, min = Math.min(n, m);
+            int prefix = 0;
+            while (prefix < min && same(nl, nh, prefix, prefix)) prefix++;
+            if (prefix == n && n == m) {
+                lastReparsedLines = 0;
+                return root;
+            }
+            int suffix = 0;
+            while (suffix < min - prefix && same(nl, nh, n - 1 - suffix, m - 1 - suffix)) suffix++;
+
+            reparse(nl, segmentAt(prefix), n - suffix, n - m);
+        }
+
+        lines = nl;
+        hashes = nh;
+        root.index = null;                 // 树变了，旧索引作废
+        return root;
+    }
+
+    private boolean same(String[] nl, int[] nh, int i, int j) {
+        return nh[i] == hashes[j] && nl[i].equals(lines[j]);
+    }
+
+    /**
+     * 从第 s 段重新解析，进入后缀（新下标 ≥ suffixStart）后尝试接回旧子树
+     *
+     * @param delta 新旧行数之差，用于把新下标换算回旧下标
+     */
+    private void reparse(String[] nl, int s, int suffixStart, int delta) {
+        Segment from = segments.get(s);
+        List<OutlineParser.Node> kids = root.children;
+        List<OutlineParser.Node> oldTail = new ArrayList<>(kids.subList(from.childStart, kids.size()));
+        kids.subList(from.childStart, kids.size()).clear();
+        if (s == 0) root.contents.clear();
+
+        List<Segment> oldSegments = segments;
+        List<Segment> next = new ArrayList<>(oldSegments.subList(0, s == 0 ? 1 : s));
+        OutlineEngine.Cursor cursor = engine.new Cursor(numIndex, root, from.entry);
+
+        int j = from.startLine;
+        for (; j < nl.length; j++) {
+            cursor.feed(nl[j]);
+            if (cursor.lastLevel != 1) continue;
+
+            int t = j >= suffixStart ? headSegmentAt(oldSegments, j - delta) : -1;
+            if (t >= 0 && oldSegments.get(t).head.equals(cursor.lastLine)) {
+                // 段首一致，之后的解析状态与旧树相同：丢掉刚建的节点，接回旧子树
+                kids.remove(kids.size() - 1);
+                int shift = kids.size() - oldSegments.get(t).childStart;
+                kids.addAll(oldTail.subList(oldSegments.get(t).childStart - from.childStart, oldTail.size()));
+
+                Segment resync = oldSegments.get(t);
+                next.add(new Segment(j, resync.childStart + shift, resync.head, cursor.beforeLastTopHeading));
+                for (int k = t + 1; k < oldSegments.size(); k++) {
+                    Segment old = oldSegments.get(k);
+                    next.add(new Segment(old.startLine + delta, old.childStart + shift, old.head, old.entry));
+                }
+                break;
+            }
+            next.add(new Segment(j, kids.size() - 1, cursor.lastLine, cursor.beforeLastTopHeading));
+        }
+
+        lastReparsedLines = Math.min(j + 1, nl.length) - from.startLine;
+        segments = next;
+    }
+
+    /**
+     * 包含第 line 行的段：起始行 ≤ line 的最后一段
+     */
+    private int segmentAt(int line) {
+        int lo = 0, hi = segments.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (segments.get(mid).startLine <= line) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * 以第 line 行为段首一级标题的旧段下标，没有返回 -1
+     */
+    private static int headSegmentAt(List<Segment> segs, int line) {
+        int lo = 1, hi = segs.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int start = segs.get(mid).startLine;
+            if (start == line) return mid;
+            if (start < line) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,211 @@
+package job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量解析：同一份模版对上千份报告。
+ *
+ * <ul>
+ *   <li>模版只解析一次：『contentKey → 标准编号』映射按模版路径缓存，只读共享给所有工作线程。</li>
+ *   <li>报告的抽取 + 解析分发到固定大小的线程池，同时在途的报告数有上限，避免结果堆积撑爆内存。</li>
+ *   <li>结果按完成顺序逐个回调，慢文档不会阻塞其他报告的输出。</li>
+ * </ul>
+ * 回调始终在调用 {@link #parseAll} 的线程上执行，调用方无需自己加锁。
+ */
+public class OutlineBatchParser implements AutoCloseable {
+
+    /**
+     * 单份报告的解析结果，成功时 root 非空，失败时 error 非空。
+     */
+    public static class ReportResult {
+        public final String reportPath;
+        public final OutlineParser.Node root;
+        public final Throwable error;
+        public final long elapsedMillis;
+
+        ReportResult(String reportPath, OutlineParser.Node root, Throwable error, long elapsedMillis) {
+            this.reportPath = reportPath;
+            this.root = root;
+            this.error = error;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * 逐份报告的结果回调
+     */
+    public interface ResultHandler {
+        void onResult(ReportResult result);
+    }
+
+    private final OutlineEngine engine;
+    private final ExecutorService pool;
+    private final int maxInFlight;
+    // 模版路径 → 只读编号查找表
+    private final Map<String, TemplateNumberIndex> templateCache = new ConcurrentHashMap<>();
+
+    /**
+     * @param threads 工作线程数，同时在途的报告最多为 threads * 2
+     */
+    public OutlineBatchParser(int threads) {
+        this(OutlineParser.defaultEngine(), threads);
+    }
+
+    /**
+     * @param engine  解析配置，所有报告共用
+     * @param threads 工作线程数，同时在途的报告最多为 threads * 2
+     */
+    public OutlineBatchParser(OutlineEngine engine, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads 必须大于 0：" + threads);
+        }
+        this.engine = engine;
+        this.maxInFlight = threads * 2;
+        this.pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger seq = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "outline-batch-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * 编译模版：抽取 + 解析一次，得到只读的『contentKey → 标准编号』映射，后续同路径直接复用。
+     */
+    public Map<String, String> compileTemplate(String templatePath) throws IOException {
+        return compileTemplateIndex(templatePath).asMap();
+    }
+
+    private TemplateNumberIndex compileTemplateIndex(String templatePath) throws IOException {
+        try {
+            return templateCache.computeIfAbsent(templatePath, path -> {
+                try {
+                    List<String> tmplLines = engine.extractWordStreaming(path);
+                    return TemplateNumberIndex.of(engine.buildTemplateNumberMap(tmplLines));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 用同一份模版解析一批报告，每完成一份就回调一次。
+     * 单份报告失败只体现在其 {@link ReportResult#error} 上，不影响其余报告。
+     *
+     * @param templatePath 模版路径
+     * @param reportPaths  报告路径，可以是惰性迭代的
+     * @param handler      结果回调（在当前线程执行）
+     * @throws IOException          模版本身无法解析
+     * @throws InterruptedException 等待结果时被中断
+     */
+    public void parseAll(String templatePath, Iterable<String> reportPaths, ResultHandler handler)
+            throws IOException, InterruptedException {
+        final TemplateNumberIndex tmplNumMap = compileTemplateIndex(templatePath);
+        CompletionService<ReportResult> cs = new ExecutorCompletionService<>(pool);
+
+        Iterator<String> it = reportPaths.iterator();
+        Set<Future<ReportResult>> pending = new HashSet<>();
+        try {
+            while (it.hasNext() || !pending.isEmpty()) {
+                // 先把在途任务补满，再取一个完成的结果
+                while (pending.size() < maxInFlight && it.hasNext()) {
+                    final String reportPath = it.next();
+                    pending.add(cs.submit(() -> parseOne(reportPath, tmplNumMap)));
+                }
+                Future<ReportResult> done = cs.take();
+                pending.remove(done);
+                handler.onResult(getQuietly(done));
+            }
+        } finally {
+            // 被中断或回调抛异常时，剩下的任务直接取消
+            for (Future<ReportResult> f : pending) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    private ReportResult parseOne(String reportPath, TemplateNumberIndex tmplNumMap) {
+        long start = System.nanoTime();
+        try {
+            List<String> reportLines = engine.extractWordStreaming(reportPath);
+            OutlineParser.Node root = engine.parse(reportLines, tmplNumMap);
+            return new ReportResult(reportPath, root, null, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception | OutOfMemoryError e) {
+            return new ReportResult(reportPath, null, e, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static ReportResult getQuietly(Future<ReportResult> f) throws InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            // parseOne 自己兜住了异常，这里理论上不会发生
+            return new ReportResult(null, null, e.getCause(), 0);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ────── 示例 Main：java job.OutlineBatchParser 模版.docx 报告目录 [线程数] ──────
+    public static void main(String[] args) throws Exception {
+        String templatePath = args.length > 0 ? args[0] : "/Users/Jenius/Desktop/JavaZero/src/main/java/job/授信-模版.docx";
+        String reportDir = args.length > 1 ? args[1] : "/Users/Jenius/Desktop/reports";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        List<String> reportPaths = new ArrayList<>();
+        File[] files = new File(reportDir).listFiles((dir, name) -> name.endsWith(".docx"));
+        if (files != null) {
+            for (File f : files) reportPaths.add(f.getPath());
+        }
+
+        final int[] ok = {0};
+        try (OutlineBatchParser batch = new OutlineBatchParser(threads)) {
+            batch.parseAll(templatePath, reportPaths, result -> {
+                if (result.isSuccess()) {
+                    ok[0]++;
+                    System.out.printf("[OK] %s (%d ms)%n", result.reportPath, result.elapsedMillis);
+                } else {
+                    System.out.printf("[FAIL] %s：%s%n", result.reportPath, result.error);
+                }
+            });
+        }
+        System.out.printf("完成 %d / %d%n", ok[0], reportPaths.size());
+    }
+}
@@ -0,0 +1,196 @@
+package job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 大纲解析的不可变配置：编号正则（按层级高→低）、每级编号的输出格式、报告正文起始判定。
+ *
+ * <p>构建后所有字段只读，可以被任意多个 {@link OutlineEngine} 在多线程下共享。
+ * 每条编号正则需提供两个分组：group(1) 为编号，group(2) 为标题。</p>
+ *
+ * <pre>
+ * OutlineConfig cfg = OutlineConfig.builder()
+ *         .patterns(myPatterns)
+ *         .numberFormats(OutlineConfig.NumberFormat.of("第", "章"), OutlineConfig.NumberFormat.of("", "."))
+ *         .build();
+ * </pre>
+ */
+public final class OutlineConfig {
+
+    /**
+     * 把 group(1) 的编号还原为 rawNumber：prefix + 编号 + suffix
+     */
+    public static final class NumberFormat {
+        final String prefix;
+        final String suffix;
+
+        private NumberFormat(String prefix, String suffix) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        public static NumberFormat of(String prefix, String suffix) {
+            if (prefix == null || suffix == null) {
+                throw new IllegalArgumentException("prefix / suffix 不能为 null");
+            }
+            return new NumberFormat(prefix, suffix);
+        }
+
+        String format(String number) {
+            return prefix + number + suffix;
+        }
+
+        boolean sameAs(NumberFormat o) {
+            return prefix.equals(o.prefix) && suffix.equals(o.suffix);
+        }
+    }
+
+    static final List<Pattern> DEFAULT_PATTERNS = Collections.unmodifiableList(Arrays.asList(
+            // 一级：  一、
+            Pattern.compile("^([一二三四五六七八九十]+)、\\s*(.+)$"),
+            // 二级：  （一）
+            Pattern.compile("^（([一二三四五六七八九十]+)）\\s*(.+)$"),
+            // 三级：  1.
+            Pattern.compile("^([0-9]+)\\.\\s*(.+)$"),
+            // 四级：  （1）
+            Pattern.compile("^（([0-9]+)）\\s*(.+)$")
+    ));
+
+    // 四级及以后：沿用括号形式（超出列表长度的层级使用最后一个格式）
+    static final List<NumberFormat> DEFAULT_FORMATS = Collections.unmodifiableList(Arrays.asList(
+            NumberFormat.of("", "、"),
+            NumberFormat.of("（", "）"),
+            NumberFormat.of("", "."),
+            NumberFormat.of("（", "）")
+    ));
+
+    private static final OutlineConfig DEFAULT = new Builder().build();
+
+    private final List<Pattern> patterns;
+    private final List<NumberFormat> numberFormats;
+    private final Pattern reportStartOverride;   // null = 与一级编号正则相同
+    private final boolean defaultHeadings;       // 可走 HeadingClassifier
+    private final boolean defaultFormats;
+    private final boolean defaultReportStart;
+
+    private OutlineConfig(Builder b) {
+        this.patterns = b.patterns == DEFAULT_PATTERNS
+                ? DEFAULT_PATTERNS
+                : Collections.unmodifiableList(new ArrayList<>(b.patterns));
+        this.numberFormats = Collections.unmodifiableList(new ArrayList<>(b.numberFormats));
+        this.reportStartOverride = b.reportStartPattern;
+
+        this.defaultHeadings = this.patterns == DEFAULT_PATTERNS;
+        this.defaultFormats = sameFormats(this.numberFormats, DEFAULT_FORMATS);
+        this.defaultReportStart = defaultHeadings && b.reportStartPattern == null;
+    }
+
+    /**
+     * 默认中文四级编号配置
+     */
+    public static OutlineConfig defaults() {
+        return DEFAULT;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 以当前配置为基础修改
+     */
+    public Builder toBuilder() {
+        Builder b = new Builder();
+        b.patterns = patterns;
+        b.numberFormats = numberFormats;
+        b.reportStartPattern = reportStartOverride;
+        return b;
+    }
+
+    public List<Pattern> getPatterns() {
+        return patterns;
+    }
+
+    public int levels() {
+        return patterns.size();
+    }
+
+    public Pattern getReportStartPattern() {
+        return reportStartOverride != null ? reportStartOverride : patterns.get(0);
+    }
+
+    /**
+     * 第 level 级（从 1 开始）的编号格式
+     */
+    NumberFormat numberFormat(int level) {
+        int idx = Math.min(level, numberFormats.size()) - 1;
+        return numberFormats.get(idx);
+    }
+
+    boolean usesDefaultHeadings() {
+        return defaultHeadings;
+    }
+
+    boolean usesDefaultFormats() {
+        return defaultFormats;
+    }
+
+    boolean usesDefaultReportStart() {
+        return defaultReportStart;
+    }
+
+    private static boolean sameFormats(List<NumberFormat> a, List<NumberFormat> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).sameAs(b.get(i))) return false;
+        }
+        return true;
+    }
+
+    public static final class Builder {
+        private List<Pattern> patterns = DEFAULT_PATTERNS;
+        private List<NumberFormat> numberFormats = DEFAULT_FORMATS;
+        private Pattern reportStartPattern;      // null = 与一级编号正则相同
+
+        private Builder() {
+        }
+
+        /**
+         * 按层级（高→低）排列的编号正则
+         */
+        public Builder patterns(List<Pattern> patterns) {
+            if (patterns == null || patterns.isEmpty()) {
+                throw new IllegalArgumentException("patterns 至少需要一级");
+            }
+            this.patterns = patterns;
+            return this;
+        }
+
+        /**
+         * 每级编号的输出格式，层级超出列表长度时沿用最后一个
+         */
+        public Builder numberFormats(NumberFormat... formats) {
+            if (formats == null || formats.length == 0) {
+                throw new IllegalArgumentException("numberFormats 至少需要一个");
+            }
+            this.numberFormats = Arrays.asList(formats);
+            return this;
+        }
+
+        /**
+         * 报告正文起始行（整行匹配）；不设置时使用一级编号正则
+         */
+        public Builder reportStart(Pattern pattern) {
+            this.reportStartPattern = pattern;
+            return this;
+        }
+
+        public OutlineConfig build() {
+            return new OutlineConfig(this);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package job;
+
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 可实例化的大纲解析器：行为完全由构造时传入的 {@link OutlineConfig} 决定。
+ *
+ * <p>实例只持有不可变配置，所有解析状态都在方法局部，
+ * 因此不同编号体系的多个实例可以在同一个 JVM 里并发使用，互不干扰。
+ * {@link OutlineParser} 的静态 API 委托给一个默认实例。</p>
+ *
+ * 兼容 Java 8。
+ */
+public class OutlineEngine {
+
+    private final OutlineConfig config;
+
+    public OutlineEngine(OutlineConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("config 不能为 null");
+        }
+        this.config = config;
+    }
+
+    public OutlineConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 判断报告正文是否从该行开始（整行匹配）
+     */
+    private boolean isReportStart(String text, HeadingClassifier.Match hm) {
+        if (config.usesDefaultReportStart()) {
+            return HeadingClassifier.matchesFirstLevel(text, hm);
+        }
+        return config.getReportStartPattern().matcher(text).matches();
+    }
+
+    /**
+     * 从目标路径的文档中提取段落（XWPFDocument 版）
+     */
+    public List<String> extractWord(String filePath) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (FileInputStream fis = new FileInputStream(filePath);
+             XWPFDocument document = new XWPFDocument(fis)) {
+
+            boolean isReportStarted = false;
+            HeadingClassifier.Match hm = new HeadingClassifier.Match();
+            TableFlattener flattener = new TableFlattener();   // 同一文档内的表格复用缓冲
+
+            // 遍历文档中的所有元素，对表格抽取内容，对段落抽取分段标记
+            List<IBodyElement> bodyElements = document.getBodyElements();
+            for (IBodyElement element : bodyElements) {
+                if (element.getElementType() == BodyElementType.PARAGRAPH) {
+                    XWPFParagraph para = (XWPFParagraph) element;
+                    String text = para.getText().trim();
+                    if (text.isEmpty()) continue;
+
+                    // 判断报告文档正文是否开始，一般以一、开始
+                    if (!isReportStarted && isReportStart(text, hm)) {
+                        isReportStarted = true;
+                    } else if (!isReportStarted) {
+                        continue;
+                    }
+                    lines.add(text);
+                } else if (element.getElementType() == BodyElementType.TABLE) {
+                    XWPFTable table = (XWPFTable) element;
+                    // 拿到表格后，如果当前有积累段落内容，就将表格形成的文本追加进去
+                    lines.add(flattener.flatten(table));
+                }
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * 流式版 extractWord：不加载 XWPFDocument，直接用 StAX 读取 word/document.xml。
+     */
+    public List<String> extractWordStreaming(String filePath) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        DocxStreamReader.read(filePath, new DocxStreamReader.BodyHandler() {
+            private boolean isReportStarted = false;
+            private final HeadingClassifier.Match hm = new HeadingClassifier.Match();
+
+            @Override
+            public void onParagraph(String rawText) {
+                String text = rawText.trim();
+                if (text.isEmpty()) return;
+
+                // 判断报告文档正文是否开始，一般以一、开始
+                if (!isReportStarted && isReportStart(text, hm)) {
+                    isReportStarted = true;
+                } else if (!isReportStarted) {
+                    return;
+                }
+                lines.add(text);
+            }
+
+            @Override
+            public void onTable(String markdown) {
+                lines.add(markdown);
+            }
+        });
+        return lines;
+    }
+
+    /**
+     * 流式抽取且表格不落地：段落按与 extractWord 相同的正文起始规则过滤后回调，表格逐行回调。
+     * 适合附表极大的报告直接写盘或交给下游，不经过 List&lt;String&gt;。
+     */
+    public void extractWordStreaming(String filePath, final DocxStreamReader.RowBodyHandler handler) throws IOException {
+        DocxStreamReader.read(filePath, new DocxStreamReader.RowBodyHandler() {
+            private boolean isReportStarted = false;
+            private final HeadingClassifier.Match hm = new HeadingClassifier.Match();
+
+            @Override
+            public void onParagraph(String rawText) throws IOException {
+                String text = rawText.trim();
+                if (text.isEmpty()) return;
+
+                // 判断报告文档正文是否开始，一般以一、开始
+                if (!isReportStarted && isReportStart(text, hm)) {
+                    isReportStarted = true;
+                } else if (!isReportStarted) {
+                    return;
+                }
+                handler.onParagraph(text);
+            }
+
+            @Override
+            public void onTableStart() throws IOException {
+                handler.onTableStart();
+            }
+
+            @Override
+            public void onTableRow(CharSequence row) throws IOException {
+                handler.onTableRow(row);
+            }
+
+            @Override
+            public void onTableEnd() throws IOException {
+                handler.onTableEnd();
+            }
+        });
+    }
+
+    public OutlineParser.Node parse(List<String> lines, Map<String, String> numMap) {
+        return parse(lines, TemplateNumberIndex.of(numMap));
+    }
+
+    /**
+     * 参考模版解析：模版映射已预编译为 {@link TemplateNumberIndex}，批量解析时可复用
+     */
+    public OutlineParser.Node parse(List<String> lines, TemplateNumberIndex numIndex) {
+        Cursor cursor = new Cursor(numIndex, new OutlineParser.Node(0, "", "ROOT", "", "", ""), null); // 虚根
+        for (String line : lines) {
+            cursor.feed(line);
+        }
+        return cursor.root;
+    }
+
+    /**
+     * parse 的逐行状态机。拆出来是为了让增量解析可以从任意一级标题处接着往下解析。
+     * 单线程使用，不可共享。
+     */
+    final class Cursor {
+        final OutlineParser.Node root;
+        final OutlineParser.Node[] currents;   // 按层索引缓存最近节点
+        private final TemplateNumberIndex numIndex;
+        private final List<Pattern> patterns = config.getPatterns();
+        private final boolean fast = config.usesDefaultHeadings();
+        private final boolean fastFormat = fast && config.usesDefaultFormats();
+        private final HeadingClassifier.Match hm = new HeadingClassifier.Match();   // 逐行复用
+
+        int lastLevel;                 // 最近一行：0 = 空行跳过，-1 = 正文，>0 = 标题层级
+        String lastLine;               // 最近一行补编号后的文本
+        OutlineParser.Node[] beforeLastTopHeading;   // 最近一个一级标题之前的 currents 快照
+
+        /**
+         * @param initialCurrents 接续解析时的起始状态，null 表示从头开始
+         */
+        Cursor(TemplateNumberIndex numIndex, OutlineParser.Node root, OutlineParser.Node[] initialCurrents) {
+            this.numIndex = numIndex;
+            this.root = root;
+            this.currents = new OutlineParser.Node[patterns.size()];
+            if (initialCurrents != null) {
+                System.arraycopy(initialCurrents, 0, currents, 0, Math.min(currents.length, initialCurrents.length));
+            }
+        }
+
+        void feed(String line) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                lastLevel = 0;
+                lastLine = line;
+                return;
+            }
+
+            int hitLevel = -1;
+            Matcher hitMatcher = null;
+
+            // 参考模版解析 parseWithReference
+            if (!numIndex.isEmpty()) {
+                // 越靠上的祖先优先：祖先 contentKey + "-" + 本行 命中即采用，否则退回按本行直接查
+                String bianhao = null;
+                for (int i = 0; i < currents.length; i++) {
+                    if (currents[i] != null) {
+                        bianhao = numIndex.getChild(currents[i].contentKey, line);
+                        if (bianhao != null) break;
+                    }
+                }
+                if (bianhao == null) {
+                    bianhao = numIndex.get(line);
+                }
+                if (bianhao != null) {
+                    line = bianhao + line;
+                }
+            }
+            lastLine = line;
+
+            // ① 判定命中层级
+            String numPart = null, rawNumber = null, titlePart = null;
+            if (fast) {
+                // 默认规则：一次扫描拿到层级和边界，只有命中标题才切字符串
+                hitLevel = HeadingClassifier.classify(line, hm);
+                if (hitLevel > 0) {
+                    if (fastFormat) {
+                        rawNumber = line.substring(0, hm.markerEnd);
+                    } else {
+                        numPart = line.substring(hm.numStart, hm.numEnd);
+                    }
+                    titlePart = line.substring(hm.titleStart, hm.titleEnd);
+                } else {
+                    hitLevel = -1;
+                }
+            } else {
+                for (int i = 0; i < patterns.size(); i++) {
+                    Matcher m = patterns.get(i).matcher(line);
+                    if (m.find()) {
+                        hitLevel = i + 1;          // 层级 = 索引 + 1
+                        hitMatcher = m;
+                        break;
+                    }
+                }
+                if (hitLevel > 0) {
+                    // ② 取编号 & 标题文字
+                    numPart = hitMatcher.group(1);
+                    titlePart = hitMatcher.group(2).trim();
+                }
+            }
+            lastLevel = hitLevel;
+
+            if (hitLevel > 0) {               // 命中了标题
+                if (rawNumber == null) {
+                    rawNumber = config.numberFormat(hitLevel).format(numPart);
+                }
+                String numberKey = rawNumber;
+
+                if (hitLevel == 1) {
+                    beforeLastTopHeading = currents.clone();
+                }
+
+                // ③ 生成节点
+                OutlineParser.Node parent = (hitLevel == 1) ? root : currents[hitLevel - 2];
+                if (parent == null) parent = root;   // 容错：孤儿标题归根
+                OutlineParser.Node node = OutlineParser.createNode(hitLevel, rawNumber, titlePart, numberKey, parent);
+                parent.children.add(node);
+
+                // ④ 维护 currents[]
+                currents[hitLevel - 1] = node;
+                for (int i = hitLevel; i < currents.length; i++) currents[i] = null;
+
+            } else {                        // 正文：归到最近的非空 currents
+                OutlineParser.Node target = root;
+                for (int i = currents.length - 1; i >= 0; i--) {
+                    if (currents[i] != null) {
+                        target = currents[i];
+                        break;
+                    }
+                }
+                target.contents.add(line);
+            }
+        }
+    }
+
+    /**
+     * 由模版行构造『contentKey → 标准编号』映射（每个标题取第一个编号）。
+     */
+    public Map<String, String> buildTemplateNumberMap(List<String> templateLines) {
+        OutlineParser.Node tmplRoot = parse(templateLines, new HashMap<String, String>());
+        Map<String, List<String>> tmp = OutlineParser.buildTitleToNumberMap(tmplRoot);
+
+        Map<String, String> map = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> e : tmp.entrySet()) {
+            if (!e.getValue().isEmpty()) {
+                map.put(e.getKey(), e.getValue().get(0));   // 取首编号为权威值
+            }
+        }
+        return map;
+    }
+
+    /**
+     * 传入【模版行】+【报告行】→ 得到已校正的报告树
+     */
+    public OutlineParser.Node parseReportWithTemplate(List<String> templateLines,
+                                                      List<String> reportLines) {
+        return parse(reportLines, buildTemplateNumberMap(templateLines));
+    }
+
+    /**
+     * 判断行是否能匹配任一层编号（即真假标题）
+     */
+    public boolean isHeading(String line) {
+        if (config.usesDefaultHeadings()) {
+            return HeadingClassifier.classify(line, new HeadingClassifier.Match()) > 0;
+        }
+        for (Pattern p : config.getPatterns()) {
+            if (p.matcher(line).find()) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,55 @@
+package job;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 大纲树的哈希索引：contentKey / fullNumberKey → Node，O(1) 定位章节。
+ *
+ * <p>按深度优先先序建立，同名 key 只保留第一次出现的节点，
+ * 与 {@link OutlineParser#findByContentKey} 的递归扫描结果一致。</p>
+ *
+ * <p>索引挂在查找起点节点上缓存（见 {@link OutlineParser#indexOf}），
+ * 编号校正重建 fullNumberKey 时会被清空，下次查找再惰性重建。</p>
+ */
+public class OutlineIndex {
+
+    private final Map<String, OutlineParser.Node> byContentKey;
+    private final Map<String, OutlineParser.Node> byFullNumberKey;
+
+    OutlineIndex(OutlineParser.Node root) {
+        int expected = Math.max(16, countNodes(root) * 4 / 3 + 1);
+        this.byContentKey = new HashMap<>(expected);
+        this.byFullNumberKey = new HashMap<>(expected);
+        collect(root);
+    }
+
+    public OutlineParser.Node getByContentKey(String contentKey) {
+        return byContentKey.get(contentKey);
+    }
+
+    public OutlineParser.Node getByFullNumberKey(String fullNumberKey) {
+        return byFullNumberKey.get(fullNumberKey);
+    }
+
+    public int size() {
+        return byContentKey.size();
+    }
+
+    private void collect(OutlineParser.Node node) {
+        // 先序：同名时父级 / 靠前的节点优先
+        byContentKey.putIfAbsent(node.contentKey, node);
+        byFullNumberKey.putIfAbsent(node.fullNumberKey, node);
+        for (OutlineParser.Node child : node.children) {
+            collect(child);
+        }
+    }
+
+    private static int countNodes(OutlineParser.Node node) {
+        int n = 1;
+        for (OutlineParser.Node child : node.children) {
+            n += countNodes(child);
+        }
+        return n;
+    }
+}
@@ -1,16 +1,14 @@
 package job;
 
 import org.apache.poi.xwpf.usermodel.*;
-import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTVMerge;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.*;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * 解析 3 级中文编号大纲，并生成两类 key。
+ * 解析相关的静态方法委托给默认 {@link OutlineEngine}；树的查找 / 输出工具与配置无关，仍在这里。
  * 兼容 Java 8，尽量不用生僻语法。
  */
 public class OutlineParser {
@@ -25,6 +23,7 @@ public class OutlineParser {
         String contentKey;             // 从根到本级的标题文字串
         List<String> contents = new ArrayList<>();   // 正文段落
         List<Node> children = new ArrayList<>();
+        OutlineIndex index;            // 以本节点为起点的查找索引（惰性构建，编号重建时清空）
 
         Node(int level, String rawNumber, String title,
              String numberKey, String fullNumberKey, String contentKey) {
@@ -38,24 +37,24 @@ public class OutlineParser {
     }
 
     /**
-     * 按层级（高→低）排列的编号正则。调用方可 setPatterns(...) 覆盖自定义。
+     * 静态 API 使用的默认解析器。配置不可变，setPatterns(...) 会整体替换为新实例。
+     * 需要多套编号体系并发时，请直接 new OutlineEngine(config)。
      */
-    private static List<Pattern> PATTERNS = new ArrayList<>(Arrays.asList(
-            // 一级：  一、
-            Pattern.compile("^([一二三四五六七八九十]+)、\\s*(.+)$"),
-            // 二级：  （一）
-            Pattern.compile("^（([一二三四五六七八九十]+)）\\s*(.+)$"),
-            // 三级：  1.
-            Pattern.compile("^([0-9]+)\\.\\s*(.+)$"),
-            // 四级：  （1）
-            Pattern.compile("^（([0-9]+)）\\s*(.+)$")
-    ));
+    private static volatile OutlineEngine defaultEngine = new OutlineEngine(OutlineConfig.defaults());
 
     /**
-     * 允许调用方按需替换（支持不同模版）
+     * 允许调用方按需替换（支持不同模版），自定义时回退到正则匹配。
+     * 注意这是全局设置，会影响之后所有静态调用。
      */
     public static void setPatterns(List<Pattern> patterns) {
-        PATTERNS = patterns;
+        defaultEngine = new OutlineEngine(defaultEngine.getConfig().toBuilder().patterns(patterns).build());
+    }
+
+    /**
+     * 静态 API 背后的默认实例
+     */
+    public static OutlineEngine defaultEngine() {
+        return defaultEngine;
     }
 
     /**
@@ -66,140 +65,41 @@ public class OutlineParser {
      * @throws IOException
      */
     public static List<String> extractWord(String filePath) throws IOException {
-        List<String> lines = new ArrayList<>();
-        try (FileInputStream fis = new FileInputStream(filePath);
-             XWPFDocument document = new XWPFDocument(fis)) {
-
-            boolean isReportStarted = false;
-
-            // 遍历文档中的所有元素，对表格抽取内容，对段落抽取分段标记
-            List<IBodyElement> bodyElements = document.getBodyElements();
-            for (IBodyElement element : bodyElements) {
-                if (element.getElementType() == BodyElementType.PARAGRAPH) {
-                    XWPFParagraph para = (XWPFParagraph) element;
-                    String text = para.getText().trim();
-                    if (text.isEmpty()) continue;
-
-                    // 判断报告文档正文是否开始，一般以一、开始
-                    if (!isReportStarted && PATTERNS.get(0).matcher(text).matches()) {
-                        isReportStarted = true;
-                    } else if (!isReportStarted) {
-                        continue;
-                    }
-                    lines.add(text);
-                } else if (element.getElementType() == BodyElementType.TABLE) {
-                    XWPFTable table = (XWPFTable) element;
-                    // 拿到表格后，如果当前有积累段落内容，就将表格形成的文本追加进去
-                    lines.add(parseTableToMarkdown(table));
-                }
-            }
-        }
-
-        return lines;
+        return defaultEngine.extractWord(filePath);
     }
 
-
     /**
-     * 把 Word 表格序列化为“| cell | … |” 形式的 Markdown ⾏。
-     *
-     * <p><b>设计目标</b></p>
-     * <ul>
-     *   <li>⽆需输出 <code>| --- | --- |</code> 分割线，方便后续⼤模型按“|”拆分。</li>
-     *   <li>任何横向（<code>gridSpan</code>）或纵向（<code>vMerge</code>）合并的单元格，都要在
-     *       结果中按<strong>合并后内容填充到每个被合并位置</strong>，保证列数固定。</li>
-     * </ul>
-     *
-     * <p><b>算法流程</b></p>
-     * <ol>
-     *   <li>逐⾏遍历表格。</li>
-     *   <li>对每个单元格：
-     *       <ul>
-     *         <li>解析 <code>vMerge</code> ── 判断是否为“restart / continue”。</li>
-     *         <li>解析 <code>gridSpan</code> ── 获取横向跨度。</li>
-     *         <li>延续⾏：从缓存 <code>vMergeCache</code> 获取起始⾏的文本。</li>
-     *         <li>起始⾏：把⽂本写⼊缓存中，对应列后续⾏可继承。</li>
-     *         <li>把⽂本按 <code>gridSpan</code> 次数 push 到⽬前⾏的 <code>expanded</code> 列表。</li>
-     *       </ul>
-     *   </li>
-     *   <li>将 <code>expanded</code> 中的所有单元格⽂本拼接输出为⼀⾏ Markdown。</li>
-     * </ol>
+     * 流式版 extractWord：不加载 XWPFDocument，直接用 StAX 读取 word/document.xml。
+     * 输出与 {@link #extractWord(String)} 相同，适合 200 页以上的大报告。
      *
-     * <p><b>关键数据结构</b></p>
-     * <pre>
-     * Map&lt;Integer, String&gt; vMergeCache
-     *   key   ─ 合并列索引
-     *   value ─ 合并起始⾏的单元格⽂本
-     * </pre>
+     * @param filePath
+     * @return
+     * @throws IOException
+     */
+    public static List<String> extractWordStreaming(String filePath) throws IOException {
+        return defaultEngine.extractWordStreaming(filePath);
+    }
+
+    /**
+     * 流式抽取，段落过滤规则同上，表格逐行回调而不拼成整串，适合超大附表。
      *
-     * <p>这样做的⽐较值：</p>
-     * <ul>
-     *   <li>逻辑简单，⽆需预扫描全表列数。</li>
-     *   <li>横纵向合并可叠加，能⽀持任意矩形块。</li>
-     * </ul>
+     * @param filePath
+     * @param handler
+     * @throws IOException
      */
-    private static String parseTableToMarkdown(XWPFTable table) {
-        StringBuilder sb = new StringBuilder();
-        List<XWPFTableRow> rows = table.getRows();
-
-        // key = 列索引；value = 该列中“纵向合并起始行”的文本
-        Map<Integer, String> vMergeCache = new HashMap<>();
-
-        for (XWPFTableRow row : rows) {
-            // 每次处理一整行，expanded 用来保存“铺平”后的单元格文本
-            List<String> expanded = new ArrayList<>();
-            int colIndex = 0;
-
-            for (XWPFTableCell cell : row.getTableCells()) {
-                String cellText = cell.getText().replaceAll("\n", " ").trim();
-
-                // ------------- Step 1: 纵向合并判定 -------------
-
-                boolean vRestart = false;
-                boolean vContinue = false;
-                if (cell.getCTTc().getTcPr() != null && cell.getCTTc().getTcPr().isSetVMerge()) {
-                    CTVMerge vm = cell.getCTTc().getTcPr().getVMerge();
-                    String mergeVal = (vm.isSetVal() && vm.getVal() != null)
-                            ? vm.getVal().toString()
-                            : null;
-
-                    if ("restart".equalsIgnoreCase(mergeVal)) {
-                        vRestart = true;           // 垂直合并起始行
-                    } else {                      // 包括 "continue" 或无 val
-                        vContinue = true;         // 垂直合并延续行
-                    }
-                }
-                if (vContinue) {
-                    cellText = vMergeCache.getOrDefault(colIndex, "");
-                }
-
-                // ------------- Step 2: 横向合并判定 -------------
-                int gridSpan = 1;
-                if (cell.getCTTc().getTcPr() != null && cell.getCTTc().getTcPr().isSetGridSpan()) {
-                    gridSpan = cell.getCTTc().getTcPr().getGridSpan().getVal().intValue();
-                }
-
-                // 如果是垂直合并的起始行，把文本写入缓存
-                if (vRestart) {
-                    for (int i = 0; i < gridSpan; i++) {
-                        vMergeCache.put(colIndex + i, cellText);
-                    }
-                }
-
-                // 横向复制
-                for (int i = 0; i < gridSpan; i++) {
-                    expanded.add(cellText);
-                    colIndex++;
-                }
-            }
+    public static void extractWordStreaming(String filePath, DocxStreamReader.RowBodyHandler handler) throws IOException {
+        defaultEngine.extractWordStreaming(filePath, handler);
+    }
 
-            // ------------- Step 3: 输出本行 -------------
-            for (String txt : expanded) {
-                sb.append("| ").append(txt).append(" ");
-            }
-            sb.append("|\n");
-        }
 
-        return sb.toString();
+    /**
+     * 把 Word 表格序列化为“| cell | … |” 形式的 Markdown ⾏（不输出分割线），
+     * gridSpan / vMerge 合并的单元格按合并后内容填充到每个被合并位置，保证列数固定。
+     *
+     * <p>实现见 {@link TableFlattener}；同一文档多张表时请直接复用一个 TableFlattener。</p>
+     */
+    static String parseTableToMarkdown(XWPFTable table) {
+        return new TableFlattener().flatten(table);
     }
 
 
@@ -216,102 +116,19 @@ public class OutlineParser {
     }
 
     public static Node parse(List<String> lines, Map<String, String> numMap) {
-        Node root = new Node(0, "", "ROOT", "", "", ""); // 虚根
-        Node[] currents = new Node[PATTERNS.size()];   // 按层索引缓存最近节点
-
-        for (String line : lines) {
-            line = line.trim();
-            if (line.isEmpty()) continue;
-
-            int hitLevel = -1;
-            Matcher hitMatcher = null;
-
-            // 参考模版解析 parseWithReference
-            if (!numMap.isEmpty()) {
-
-                String tmpHead = "";
-                String modifiedLine = line;
-
-
-                if (numMap.containsKey(line)) {
-                    modifiedLine = numMap.get(line) + line;
-                }
-
-                for (int i = currents.length - 1; i >= 0; i--) {
-                    if (currents[i] != null) {
-                        Node tmpNode = currents[i];
-                        tmpHead = tmpNode.contentKey + "-" + line;
-                        String bianhao = numMap.get(tmpHead);
-                        if (bianhao != null) {
-                            modifiedLine = bianhao + line;
-                        }
-                    }
-                }
-                line = modifiedLine;
-            }
-
-            // ① 判定命中层级
-            for (int i = 0; i < PATTERNS.size(); i++) {
-                Matcher m = PATTERNS.get(i).matcher(line);
-                if (m.find()) {
-                    hitLevel = i + 1;          // 层级 = 索引 + 1
-                    hitMatcher = m;
-                    break;
-                }
-            }
+        return defaultEngine.parse(lines, numMap);
+    }
 
-            if (hitLevel > 0) {               // 命中了标题
-                // ② 取编号 & 标题文字
-                String numPart = hitMatcher.group(1);
-                String titlePart = hitMatcher.group(2).trim();
-
-                String rawNumber, numberKey;
-                switch (hitLevel) {
-                    case 1:
-                        rawNumber = numPart + "、";
-                        numberKey = rawNumber;
-                        break;
-                    case 2:
-                        rawNumber = "（" + numPart + "）";
-                        numberKey = rawNumber;
-                        break;
-                    case 3:
-                        rawNumber = numPart + ".";
-                        numberKey = rawNumber;
-                        break;
-                    default:
-                        rawNumber = "（" + numPart + "）";
-                        numberKey = rawNumber;
-                        break; // 四级及以后：沿用括号形式
-                }
-
-                // ③ 生成节点
-                Node parent = (hitLevel == 1) ? root : currents[hitLevel - 2];
-                if (parent == null) parent = root;   // 容错：孤儿标题归根
-                Node node = createNode(hitLevel, rawNumber, titlePart, numberKey, parent);
-                parent.children.add(node);
-
-                // ④ 维护 currents[]
-                currents[hitLevel - 1] = node;
-                for (int i = hitLevel; i < currents.length; i++) currents[i] = null;
-
-            } else {                        // 正文：归到最近的非空 currents
-                Node target = root;
-                for (int i = currents.length - 1; i >= 0; i--) {
-                    if (currents[i] != null) {
-                        target = currents[i];
-                        break;
-                    }
-                }
-                target.contents.add(line);
-            }
-        }
-        return root;
+    /**
+     * 参考模版解析：模版映射已预编译为 {@link TemplateNumberIndex}，批量解析时可复用
+     */
+    public static Node parse(List<String> lines, TemplateNumberIndex numIndex) {
+        return defaultEngine.parse(lines, numIndex);
     }
 
     // 构造节点并补全 key
-    private static Node createNode(int level, String rawNumber, String title,
-                                   String numberKey, Node parent) {
+    static Node createNode(int level, String rawNumber, String title,
+                           String numberKey, Node parent) {
         String fullNumKey = parent.fullNumberKey.isEmpty()
                 ? numberKey
                 : parent.fullNumberKey + "-" + numberKey;
@@ -334,22 +151,46 @@ public class OutlineParser {
     }
 
     /**
-     * ==== 1) 递归查找：根据 contentKey 精确匹配 ====
+     * ==== 1) 查找：根据 contentKey 精确匹配（走哈希索引，结果与先序递归扫描一致） ====
      */
     public static Node findByContentKey(Node node, String key) {
-        if (key.equals(node.contentKey)) return node;
-        for (Node child : node.children) {
-            Node hit = findByContentKey(child, key);
-            if (hit != null) return hit;
+        return indexOf(node).getByContentKey(key);
+    }
+
+    /**
+     * 根据 fullNumberKey（如 "一、-（二）-1."）精确匹配
+     */
+    public static Node findByFullNumberKey(Node node, String fullNumberKey) {
+        return indexOf(node).getByFullNumberKey(fullNumberKey);
+    }
+
+    /**
+     * 取（必要时构建）以 node 为起点的索引
+     */
+    public static OutlineIndex indexOf(Node node) {
+        OutlineIndex idx = node.index;
+        if (idx == null) {
+            idx = new OutlineIndex(node);
+            node.index = idx;
         }
-        return null;    // 未找到
+        return idx;
     }
 
     /**
      * ==== 2) 提取并还原整段文本（含标题与正文） ====
      */
     public static List<String> extractSection(Node root, String contentKey) {
-        Node target = findByContentKey(root, contentKey);
+        return collectSection(findByContentKey(root, contentKey));
+    }
+
+    /**
+     * 按编号提取整段文本，如 extractSectionByNumber(root, "一、-（二）")
+     */
+    public static List<String> extractSectionByNumber(Node root, String fullNumberKey) {
+        return collectSection(findByFullNumberKey(root, fullNumberKey));
+    }
+
+    private static List<String> collectSection(Node target) {
         if (target == null) return Collections.emptyList();
 
         List<String> lines = new ArrayList<>();
@@ -410,16 +251,7 @@ public class OutlineParser {
      * 1) 由模版行构造『contentKey → 标准编号』映射（每个标题取第一个编号）。
      */
     public static Map<String, String> buildTemplateNumberMap(List<String> templateLines) {
-        Node tmplRoot = parse(templateLines, new HashMap<>());
-        Map<String, List<String>> tmp = buildTitleToNumberMap(tmplRoot);
-
-        Map<String, String> map = new LinkedHashMap<>();
-        for (Map.Entry<String, List<String>> e : tmp.entrySet()) {
-            if (!e.getValue().isEmpty()) {
-                map.put(e.getKey(), e.getValue().get(0));   // 取首编号为权威值
-            }
-        }
-        return map;
+        return defaultEngine.buildTemplateNumberMap(templateLines);
     }
 
     /**
@@ -442,6 +274,7 @@ public class OutlineParser {
      * 3) 校正后需重建 fullNumberKey，保持父子连贯。
      */
     private static void rebuildFullKeys(Node node, String parentKey) {
+        node.index = null;                 // 编号变了，旧索引作废
         if (node.level == 0) {
             node.fullNumberKey = "";
         } else {
@@ -454,14 +287,19 @@ public class OutlineParser {
         }
     }
 
+    /**
+     * 4) 对已解析的报告树套用模版编号，并重建 fullNumberKey（索引随之失效重建）。
+     */
+    public static void renumberWithTemplate(Node root, Map<String, String> tmplNumMap) {
+        applyTemplateNumbers(root, tmplNumMap);
+        rebuildFullKeys(root, "");
+    }
+
     /**
      * 工具：判断行是否能匹配任一层 PATTERN（即真假标题）。
      */
     private static boolean matchesAnyPattern(String line) {
-        for (Pattern p : OutlineParser.PATTERNS) {
-            if (p.matcher(line).find()) return true;
-        }
-        return false;
+        return defaultEngine.isHeading(line);
     }
 
 
@@ -470,11 +308,12 @@ public class OutlineParser {
      */
     public static Node parseReportWithTemplate(List<String> templateLines,
                                                List<String> reportLines) {
-        Map<String, String> tmplNumMap = buildTemplateNumberMap(templateLines);
+        OutlineEngine engine = defaultEngine;     // 模版与报告用同一份配置
+        Map<String, String> tmplNumMap = engine.buildTemplateNumberMap(templateLines);
         // 先把报告行做“补编号”：凡是没匹配任何 PATTERN、但文字正好出现在模版 key 里，
         // 则强行用模版编号前缀，形如 "1. 批复额度" 或 "（二） 上年度批复情况"
 
-        Node reportRoot = parse(reportLines, tmplNumMap);
+        Node reportRoot = engine.parse(reportLines, tmplNumMap);
 
         return reportRoot;
     }
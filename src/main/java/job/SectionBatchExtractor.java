@@ -0,0 +1,368 @@
+package job;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 目录级批量分段：遍历目录下所有 docx，多线程跑 {@link WordSplitMethod#streamSections}，
+ * 结果逐段写成 JSON Lines。
+ *
+ * <ul>
+ *   <li>目录惰性遍历，同时在途的文件数有上限（threads * 2），遍历速度不会跑到处理前面去；</li>
+ *   <li>每读完一段就写一行，不在内存里攒整份文档，更不攒整批结果；</li>
+ *   <li>超过 largeFileBytes 的文档串行处理，几个超大文档不会同时占着内存；</li>
+ *   <li>单个文件失败只记一行错误，不影响其余文件。</li>
+ * </ul>
+ *
+ * 输出格式（每行一个 JSON 对象，file 为相对目录的路径）：
+ * <pre>
+ * {"file":"a/1.docx","header":"（一）基本情况","contents":["……","| c1 | c2 |\n"]}
+ * {"file":"a/1.docx","status":"ok","sections":12,"elapsedMillis":35}
+ * {"file":"a/2.docx","status":"error","error":"java.io.IOException: ……","elapsedMillis":3}
+ * </pre>
+ * 一个文件的分段行总在它的 status 行之前；失败的文件可能已经写出了部分分段行，以 status 为准。
+ */
+public class SectionBatchExtractor implements AutoCloseable {
+
+    /**
+     * 单个文件的处理结果
+     */
+    public static class FileResult {
+        public final String file;
+        public final int sections;
+        public final Throwable error;
+        public final long elapsedMillis;
+
+        FileResult(String file, int sections, Throwable error, long elapsedMillis) {
+            this.file = file;
+            this.sections = sections;
+            this.error = error;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * 逐个文件的结果回调
+     */
+    public interface ResultHandler {
+        void onResult(FileResult result);
+    }
+
+    /** 默认的大文件阈值：64 MB */
+    public static final long DEFAULT_LARGE_FILE_BYTES = 64L * 1024 * 1024;
+
+    private final ExecutorService pool;
+    private final int maxInFlight;
+    private final long largeFileBytes;
+    private final Semaphore largeFileGate = new Semaphore(1);
+
+    /**
+     * @param threads 工作线程数，同时在途的文件最多为 threads * 2
+     */
+    public SectionBatchExtractor(int threads) {
+        this(threads, DEFAULT_LARGE_FILE_BYTES);
+    }
+
+    /**
+     * @param threads        工作线程数，同时在途的文件最多为 threads * 2
+     * @param largeFileBytes 超过该大小的文档一次只处理一个
+     */
+    public SectionBatchExtractor(int threads, long largeFileBytes) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads 必须大于 0：" + threads);
+        }
+        this.maxInFlight = threads * 2;
+        this.largeFileBytes = largeFileBytes;
+        this.pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger seq = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "section-batch-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * 处理目录（含子目录）下的全部 docx，Word 的临时锁文件（~$ 开头）跳过。
+     *
+     * @param dir     根目录
+     * @param out     JSON Lines 输出，多个线程共用，内部按行加锁
+     * @param handler 每完成一个文件回调一次（在当前线程执行），可为 null
+     * @throws IOException          目录无法遍历或输出写失败
+     * @throws InterruptedException 等待结果时被中断
+     */
+    public void extractAll(final Path dir, final Writer out, ResultHandler handler)
+            throws IOException, InterruptedException {
+        CompletionService<FileResult> cs = new ExecutorCompletionService<>(pool);
+        Set<Future<FileResult>> pending = new HashSet<>();
+        final LineSink sink = new LineSink(out);
+        Throwable primary = null;
+
+        try (Stream<Path> files = Files.walk(dir)) {
+            Iterator<Path> it = files
+                    .filter(p -> Files.isRegularFile(p))
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.endsWith(".docx") && !name.startsWith("~$");
+                    })
+                    .iterator();
+
+            while (it.hasNext() || !pending.isEmpty()) {
+                // 先把在途任务补满，再取一个完成的结果
+                while (pending.size() < maxInFlight && it.hasNext()) {
+                    final Path file = it.next();
+                    pending.add(cs.submit(() -> extractOne(dir, file, sink)));
+                }
+                Future<FileResult> done = cs.take();
+                pending.remove(done);
+                FileResult result = getQuietly(done);
+                if (result.error instanceof OutputFailure) {
+                    throw ((OutputFailure) result.error).getCause();
+                }
+                writeStatus(sink, result);
+                if (handler != null) {
+                    handler.onResult(result);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            // Files.walk 迭代过程中的目录读取错误
+            primary = e.getCause();
+            throw e.getCause();
+        } catch (Throwable e) {
+            primary = e;
+            throw e;
+        } finally {
+            // 被中断、输出失败或回调抛异常时，剩下的任务直接取消。cancel 停不下正在跑的 StAX 解析，
+            // 所以先关上 sink：返回之后仍在运行的任务写不进 out，写下一节时就会中止
+            sink.stop();
+            for (Future<FileResult> f : pending) {
+                f.cancel(true);
+            }
+            try {
+                out.flush();
+            } catch (IOException e) {
+                if (primary == null) {
+                    throw e;
+                }
+                primary.addSuppressed(e);   // 不掩盖原来的失败原因
+            }
+        }
+    }
+
+    private FileResult extractOne(Path dir, Path file, final LineSink out) {
+        final String rel = dir.relativize(file).toString().replace('\\', '/');
+        long start = System.nanoTime();
+        final int[] sections = {0};
+        boolean large = false;
+        try {
+            if (Files.size(file) > largeFileBytes) {
+                largeFileGate.acquire();
+                large = true;
+            }
+            WordSplitMethod.streamSections(file.toString(), new WordSplitMethod.SectionHandler() {
+                @Override
+                public void onSection(String header, List<String> contents) {
+                    StringBuilder sb = new StringBuilder(256);
+                    sb.append("{\"file\":");
+                    appendJson(sb, rel);
+                    sb.append(",\"header\":");
+                    appendJson(sb, header);
+                    sb.append(",\"contents\":[");
+                    for (int i = 0; i < contents.size(); i++) {
+                        if (i > 0) sb.append(',');
+                        appendJson(sb, contents.get(i));
+                    }
+                    sb.append("]}");
+                    out.writeLine(sb);
+                    sections[0]++;
+                }
+            });
+            return new FileResult(rel, sections[0], null, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception | OutOfMemoryError e) {
+            return new FileResult(rel, sections[0], e, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            if (large) {
+                largeFileGate.release();
+            }
+        }
+    }
+
+    private static void writeStatus(LineSink out, FileResult r) throws IOException {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("{\"file\":");
+        appendJson(sb, r.file);
+        if (r.isSuccess()) {
+            sb.append(",\"status\":\"ok\",\"sections\":").append(r.sections);
+        } else {
+            sb.append(",\"status\":\"error\",\"error\":");
+            appendJson(sb, String.valueOf(r.error));
+        }
+        sb.append(",\"elapsedMillis\":").append(r.elapsedMillis).append('}');
+        try {
+            out.writeLine(sb);
+        } catch (OutputFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 一次 extractAll 共用的输出：按行加锁写入；{@link #stop()} 之后再写就抛 {@link Stopped}，
+     * 保证 extractAll 返回后调用方关闭 out 时不会还有任务在写
+     */
+    private static final class LineSink {
+        private final Writer out;
+        private boolean stopped;
+
+        LineSink(Writer out) {
+            this.out = out;
+        }
+
+        void writeLine(CharSequence line) {
+            try {
+                synchronized (out) {
+                    if (stopped) {
+                        throw new Stopped();
+                    }
+                    out.append(line).append('\n');
+                }
+            } catch (IOException e) {
+                throw new OutputFailure(e);
+            }
+        }
+
+        // 正在写的那一行写完才返回
+        void stop() {
+            synchronized (out) {
+                stopped = true;
+            }
+        }
+    }
+
+    /**
+     * 整批已结束，任务中止
+     */
+    private static class Stopped extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * 输出写失败：与单个文件的解析失败不同，需要终止整批
+     */
+    private static class OutputFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        OutputFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private static void appendJson(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {   // 后两个在部分 JS 解析器里算换行
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static FileResult getQuietly(Future<FileResult> f) throws InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            // extractOne 自己兜住了异常，这里理论上不会发生
+            return new FileResult(null, 0, e.getCause(), 0);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ────── 示例 Main：java job.SectionBatchExtractor 文档目录 输出.jsonl [线程数] ──────
+    public static void main(String[] args) throws Exception {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "/Users/Jenius/Desktop/reports");
+        Path output = Paths.get(args.length > 1 ? args[1] : "/Users/Jenius/Desktop/sections.jsonl");
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        final int[] counts = {0, 0};
+        long start = System.currentTimeMillis();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(output), StandardCharsets.UTF_8));
+             SectionBatchExtractor batch = new SectionBatchExtractor(threads)) {
+            batch.extractAll(dir, out, result -> {
+                counts[0]++;
+                if (!result.isSuccess()) {
+                    counts[1]++;
+                    System.out.printf("[FAIL] %s：%s%n", result.file, result.error);
+                }
+            });
+        }
+        System.out.printf("完成 %d 个文件，失败 %d 个，耗时 %d ms，输出：%s%n",
+                counts[0], counts[1], System.currentTimeMillis() - start, output);
+    }
+}
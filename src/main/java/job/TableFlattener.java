@@ -0,0 +1,210 @@
+package job;
+
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTcPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTVMerge;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STMerge;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * 把 Word 表格铺平成“| cell | … |”形式的 Markdown 行，OutlineParser / WordSplitMethod /
+ * DocxStreamReader 共用这一份实现。
+ *
+ * <p>合并规则（与原 parseTableToMarkdown 一致）：</p>
+ * <ul>
+ *   <li>gridSpan = n 的单元格在本行重复输出 n 次；</li>
+ *   <li>vMerge="restart" 的单元格把文本记到它覆盖的每一列，后续 vMerge（continue 或无 val）
+ *       的单元格不看自身文本，直接取该列缓存，没有缓存输出空串；</li>
+ *   <li>单元格文本中的换行替换为空格，并去掉首尾空白。</li>
+ * </ul>
+ *
+ * <p>与原实现的区别只在开销：纵向合并缓存是按列下标的数组，单元格文本直接写进复用的输出缓冲，
+ * 不再经过 replaceAll / 每行的 expanded 列表；只有 restart 单元格才会生成字符串。</p>
+ *
+ * <p>除了整表返回字符串，还可以逐行写到 {@link Appendable} 或 {@link RowHandler}：
+ * 这时缓冲里只保留当前一行，上万行的附表也不会整表驻留内存。</p>
+ *
+ * 实例可在同一文档的多张表之间复用，但不是线程安全的。
+ */
+public final class TableFlattener {
+
+    /**
+     * 逐行接收铺平结果
+     */
+    public interface RowHandler {
+        /**
+         * @param row 一行“| a | b |”，不含换行；是复用缓冲，只在回调期间有效
+         */
+        void onRow(CharSequence row) throws IOException;
+    }
+
+    private final StringBuilder out = new StringBuilder(256);
+    private RowHandler sink;                         // null = 整表累积在 out 里
+    private String[] vMergeCache = new String[16];   // 下标 = 列索引；值 = 该列纵向合并起始行的文本
+    private int cacheWidth;                          // vMergeCache 中用到的列数，用于复位
+    private int colIndex;
+
+    /**
+     * 铺平整张表
+     */
+    public String flatten(XWPFTable table) {
+        try {
+            walk(table, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);   // 不写外部目标，不会发生
+        }
+        return out.toString();
+    }
+
+    /**
+     * 逐行写入 dest，每行以换行结尾，写出的内容与 {@link #flatten(XWPFTable)} 的返回值相同
+     */
+    public void flatten(XWPFTable table, final Appendable dest) throws IOException {
+        walk(table, new RowHandler() {
+            @Override
+            public void onRow(CharSequence row) throws IOException {
+                dest.append(row).append('\n');
+            }
+        });
+    }
+
+    /**
+     * 逐行回调，整张表不会拼成一个字符串
+     */
+    public void flatten(XWPFTable table, RowHandler rows) throws IOException {
+        walk(table, rows);
+    }
+
+    private void walk(XWPFTable table, RowHandler rows) throws IOException {
+        reset(rows);
+        for (XWPFTableRow row : table.getRows()) {
+            for (XWPFTableCell cell : row.getTableCells()) {
+                boolean vRestart = false;
+                boolean vContinue = false;
+                int gridSpan = 1;
+
+                CTTcPr pr = cell.getCTTc().getTcPr();
+                if (pr != null) {
+                    if (pr.isSetVMerge()) {
+                        CTVMerge vm = pr.getVMerge();
+                        if (vm.isSetVal() && STMerge.RESTART.equals(vm.getVal())) {
+                            vRestart = true;           // 垂直合并起始行
+                        } else {                      // 包括 "continue" 或无 val
+                            vContinue = true;         // 垂直合并延续行
+                        }
+                    }
+                    if (pr.isSetGridSpan()) {
+                        gridSpan = pr.getGridSpan().getVal().intValue();
+                    }
+                }
+                // 延续格的文本用不到，不必取
+                cell(vContinue ? "" : cell.getText(), vRestart, vContinue, gridSpan);
+            }
+            endRow();
+        }
+    }
+
+    // ────── 逐格接口，供流式读取使用 ──────
+
+    /**
+     * 开始一张新表：清空输出和纵向合并缓存
+     *
+     * @param rows 逐行输出的目标，null 表示整表累积，结束后用 {@link #result()} 取
+     */
+    void reset(RowHandler rows) {
+        sink = rows;
+        out.setLength(0);
+        Arrays.fill(vMergeCache, 0, cacheWidth, null);
+        cacheWidth = 0;
+        colIndex = 0;
+    }
+
+    /**
+     * 追加一个单元格
+     *
+     * @param text 单元格原始文本（未去空白、未替换换行）
+     */
+    void cell(CharSequence text, boolean vRestart, boolean vContinue, int gridSpan) {
+        if (gridSpan <= 0) return;                   // 跨度异常的格子原实现也不输出
+        if (vContinue) {
+            String cached = colIndex < cacheWidth ? vMergeCache[colIndex] : null;
+            repeat(cached != null ? cached : "", gridSpan);
+            return;
+        }
+
+        // 换行和空格都 <= ' '，先 trim 再替换与先替换再 trim 的边界相同
+        int start = 0, end = text.length();
+        while (start < end && text.charAt(start) <= ' ') start++;
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+
+        if (vRestart) {
+            String txt = normalize(text, start, end);
+            ensureCache(colIndex + gridSpan);
+            for (int i = 0; i < gridSpan; i++) {
+                vMergeCache[colIndex + i] = txt;
+            }
+            repeat(txt, gridSpan);
+            return;
+        }
+
+        // 普通单元格：直接写进输出，横向合并时从输出里复制已写好的片段
+        out.append("| ");
+        int from = out.length();
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            out.append(c == '\n' ? ' ' : c);
+        }
+        int to = out.length();
+        out.append(' ');
+        colIndex++;
+        for (int i = 1; i < gridSpan; i++) {
+            out.append("| ").append(out, from, to).append(' ');
+            colIndex++;
+        }
+    }
+
+    /**
+     * 结束当前行
+     */
+    void endRow() throws IOException {
+        colIndex = 0;
+        if (sink == null) {
+            out.append("|\n");
+            return;
+        }
+        out.append('|');
+        sink.onRow(out);
+        out.setLength(0);
+    }
+
+    /**
+     * 当前已铺平的内容
+     */
+    String result() {
+        return out.toString();
+    }
+
+    private void repeat(String s, int times) {
+        for (int i = 0; i < times; i++) {
+            out.append("| ").append(s).append(' ');
+            colIndex++;
+        }
+    }
+
+    private void ensureCache(int width) {
+        if (width > vMergeCache.length) {
+            vMergeCache = Arrays.copyOf(vMergeCache, Math.max(width, vMergeCache.length * 2));
+        }
+        if (width > cacheWidth) cacheWidth = width;
+    }
+
+    private static String normalize(CharSequence text, int start, int end) {
+        String s = text.subSequence(start, end).toString();
+        return s.indexOf('\n') < 0 ? s : s.replace('\n', ' ');
+    }
+}
@@ -0,0 +1,121 @@
+package job;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 模版『contentKey → 标准编号』的只读查找表，专门服务 parse() 的参考模版补编号。
+ *
+ * <p>parse() 需要对每个活跃祖先查一次 <code>祖先contentKey + "-" + 当前行</code>，
+ * 直接拼串会为每行每级都生成一个临时字符串。这里利用 String.hashCode 的多项式性质：</p>
+ * <pre>
+ * hash(a + "-" + b) = (hash(a) * 31 + '-') * 31^len(b) + hash(b)
+ * </pre>
+ * 由两段已缓存的 hashCode 直接算出拼接后的哈希，再在开放寻址表里按段比对字符，
+ * 全程不分配对象，结果与拼串后 HashMap.get 完全一致（包括标题本身带 "-" 的情况）。
+ */
+public final class TemplateNumberIndex {
+
+    private static final TemplateNumberIndex EMPTY = new TemplateNumberIndex(Collections.<String, String>emptyMap());
+
+    private final Map<String, String> source;
+    private final String[] keys;
+    private final String[] values;
+    private final int[] hashes;
+    private final int mask;
+
+    private TemplateNumberIndex(Map<String, String> numMap) {
+        this.source = Collections.unmodifiableMap(numMap);
+        int cap = 8;
+        while (cap < numMap.size() * 2) cap <<= 1;      // 负载因子 ≤ 0.5
+        this.keys = new String[cap];
+        this.values = new String[cap];
+        this.hashes = new int[cap];
+        this.mask = cap - 1;
+        for (Map.Entry<String, String> e : numMap.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) continue;
+            put(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * 由模版映射编译查找表；映射之后不应再修改
+     */
+    public static TemplateNumberIndex of(Map<String, String> numMap) {
+        return numMap.isEmpty() ? EMPTY : new TemplateNumberIndex(numMap);
+    }
+
+    public boolean isEmpty() {
+        return source.isEmpty();
+    }
+
+    /**
+     * 原始映射（只读）
+     */
+    public Map<String, String> asMap() {
+        return source;
+    }
+
+    /**
+     * 等价于 numMap.get(key)
+     */
+    public String get(String key) {
+        int h = key.hashCode();
+        for (int i = spread(h) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == h && keys[i].equals(key)) return values[i];
+        }
+        return null;
+    }
+
+    /**
+     * 等价于 numMap.get(parentKey + "-" + title)，但不拼接字符串
+     */
+    public String getChild(String parentKey, String title) {
+        int pl = parentKey.length();
+        int tl = title.length();
+        int h = (parentKey.hashCode() * 31 + '-') * pow31(tl) + title.hashCode();
+        for (int i = spread(h) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] != h) continue;
+            String k = keys[i];
+            if (k.length() == pl + 1 + tl
+                    && k.charAt(pl) == '-'
+                    && k.startsWith(parentKey)
+                    && k.regionMatches(pl + 1, title, 0, tl)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    private void put(String key, String value) {
+        int h = key.hashCode();
+        int i = spread(h) & mask;
+        while (keys[i] != null) {
+            if (hashes[i] == h && keys[i].equals(key)) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = h;
+    }
+
+    // 与 HashMap 相同的高位扰动，避免只用低位
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    // 31^n（按 int 溢出，与 String.hashCode 的算术一致）
+    private static int pow31(int n) {
+        int result = 1;
+        int base = 31;
+        while (n > 0) {
+            if ((n & 1) != 0) result *= base;
+            base *= base;
+            n >>= 1;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,26 @@
+package Utils;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LazyValuesTest {
+
+    @Test
+    public void nullFromProviderMeansNoValue() {
+        LazyValues values = LazyValues.of(Collections.<String, Callable<String>>singletonMap("x", () -> null));
+
+        assertNull(values.get("x"));
+        assertEquals("", values.getOrDefault("x", ""));
+        assertEquals("", values.getOrDefault("missing", ""));
+        // 只看注册的 key，不触发计算，因此与 entrySet 不一致
+        assertTrue(values.containsKey("x"));
+        assertEquals(1, values.size());
+        assertTrue(values.entrySet().isEmpty());
+    }
+}
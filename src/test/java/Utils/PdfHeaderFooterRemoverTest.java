@@ -0,0 +1,46 @@
+package Utils;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PdfHeaderFooterRemoverTest {
+
+    // 空白 A4 页、默认带高：底部 y <= 125、顶部 y >= 722 为页眉页脚带
+    private static String remove(String content) throws IOException {
+        PdfHeaderFooterRemover.PageInfo info = PdfHeaderFooterRemover.PageInfo.of(new PDPage(PDRectangle.A4),
+                PdfHeaderFooterRemover.Mode.REMOVE, PdfHeaderFooterRemover.Bands.DEFAULT);
+        byte[] out = PdfHeaderFooterRemover.filter(content.getBytes(StandardCharsets.ISO_8859_1), info);
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void leadingIsRestoredByQ() throws IOException {
+        // q 内设的 300 行距在 Q 后失效，T* 用默认行距 0，正文仍在 y=400
+        String out = remove("q 300 TL Q BT /F1 12 Tf 72 400 Td T* (body) Tj ET");
+        assertTrue(out, out.contains("(body) Tj"));
+    }
+
+    @Test
+    public void riseIsRestoredByQ() throws IOException {
+        String out = remove("q 500 Ts Q BT /F1 12 Tf 1 0 0 1 72 400 Tm (body) Tj ET");
+        assertTrue(out, out.contains("(body) Tj"));
+    }
+
+    @Test
+    public void leadingAndRiseInsideQStillApply() throws IOException {
+        // q 内的行距把文字移到页脚带，q 内的上标偏移把文字抬进页眉带
+        String out = remove("q 20 TL BT /F1 12 Tf 72 130 Td T* (footer) Tj ET Q"
+                + " q 400 Ts BT /F1 12 Tf 72 400 Td (header) Tj ET Q"
+                + " BT /F1 12 Tf 72 400 Td (body) Tj ET");
+        assertFalse(out, out.contains("(footer) Tj"));
+        assertFalse(out, out.contains("(header) Tj"));
+        assertTrue(out, out.contains("(body) Tj"));
+    }
+}
@@ -0,0 +1,49 @@
+package Utils;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+
+public class WordPlaceholderWithFormatTest {
+
+    // ${x} 的提供者返回 null；${lines} 是多行取值，使段落走按原方式重建的多行流程
+    private static LazyValues values() {
+        Map<String, Callable<String>> providers = new LinkedHashMap<>();
+        providers.put("x", () -> null);
+        providers.put("lines", LazyValues.constant("甲\n乙"));
+        return LazyValues.of(providers);
+    }
+
+    private static XWPFParagraph paragraph(XWPFDocument doc) {
+        XWPFParagraph p = doc.createParagraph();
+        p.createRun().setText("前${x}中");
+        p.createRun().setText("${lines}后");
+        return p;
+    }
+
+    @Test
+    public void nullValueInMultiLineTableParagraph() throws IOException {
+        try (XWPFDocument doc = new XWPFDocument()) {
+            XWPFParagraph p = paragraph(doc);
+            WordPlaceholderWithFormat.processTextInTable(p, values());
+            // ${x} 替换为空；多行取值写在新段落里，原段落只留前后文字
+            assertEquals("前中后", p.getText());
+        }
+    }
+
+    @Test
+    public void nullValueInMultiLineParagraph() throws IOException {
+        try (XWPFDocument doc = new XWPFDocument()) {
+            XWPFParagraph p = paragraph(doc);
+            // 取值为 null 时不应抛 NullPointerException
+            WordPlaceholderWithFormat.processParagraph(p, values());
+        }
+    }
+}